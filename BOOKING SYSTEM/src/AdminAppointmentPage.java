@@ -6,17 +6,51 @@ import javafx.stage.Stage;
 import javafx.collections.*;
 import javafx.geometry.*;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 
 public class AdminAppointmentPage extends Application {
 
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES = 5;
+
+    private static final Metrics.Timer LOAD_EXECUTE = Metrics.timer("admin.appointments.execute");
+    private static final Metrics.Timer LOAD_MAP = Metrics.timer("admin.appointments.map");
+
+    // Length of a visit added without one, and of rows from before duration_minutes existed
+    static final int DEFAULT_MINUTES = Integer.getInteger("appointments.defaultMinutes", 30);
+    private static final int NONE = -1;
+    private static final String BOOKING_COLUMNS = "SELECT user_id, appointment_id, date, time, status, duration_minutes FROM appointments";
+    // Each user's visits; a date bound is all the window lookup can use, the exact overlap is checked in the index
+    private static final IntervalIndex BOOKINGS = new IntervalIndex(BOOKING_COLUMNS,
+        rs -> {
+            long start = startOf(rs.getString(3), rs.getString(4), rs.getString(5));
+            return start == Long.MIN_VALUE ? null
+                : new long[] { rs.getInt(1), rs.getInt(2), start, start + rs.getInt(6) * 60L };
+        },
+        (conn, userId, start, end) -> {
+            PreparedStatement stmt = conn.prepareStatement(BOOKING_COLUMNS + " WHERE user_id = ? AND date <= ? FOR UPDATE");
+            stmt.setInt(1, userId);
+            stmt.setString(2, LocalDateTime.ofEpochSecond(end, 0, ZoneOffset.UTC).toLocalDate().toString());
+            return stmt;
+        });
+
     private TableView<Appointment> table = new TableView<>();
-    private ObservableList<Appointment> data = FXCollections.observableArrayList();
+    private KeysetPager<Appointment> pager;
 
     TextField userIdField = new TextField();
     TextField dateField = new TextField();
     TextField timeField = new TextField();
     TextField statusField = new TextField();
+    TextField minutesField = new TextField();
 
     public static void main(String[] args) {
         launch(args);
@@ -43,14 +77,34 @@ public class AdminAppointmentPage extends Application {
         statusCol.setCellValueFactory(cell -> cell.getValue().statusProperty());
 
         table.getColumns().addAll(idCol, userCol, dateCol, timeCol, statusCol);
-        table.setItems(data);
-        loadAppointments();
+        pager = new KeysetPager<>(table, new KeysetPager.PageQuery<>() {
+            public List<Appointment> after(Connection conn, Appointment row, int limit) throws SQLException {
+                return appointmentsAfter(conn, row, limit);
+            }
+
+            public List<Appointment> before(Connection conn, Appointment row, int limit) throws SQLException {
+                return appointmentsBefore(conn, row, limit);
+            }
+        }, PAGE_SIZE, MAX_PAGES);
+        pager.enableDelta(AdminAppointmentPage::appointmentChangesSince, Appointment::getAppointmentId,
+            Appointment.ORDER, Appointment::sameAs);
+        AsyncDb.run(conn -> {
+            SchemaMigrations.migrate(conn);
+            SchemaMigrations.ensureAdminAppointments(conn);
+            ChangeTracking.pruneTombstones(conn);
+            BOOKINGS.ensureLoaded(conn);
+            return null;
+        }, done -> loadAppointments(), e -> {
+            AsyncDb.logError(e);
+            loadAppointments();
+        });
 
         // Input form
         userIdField.setPromptText("User ID");
         dateField.setPromptText("YYYY-MM-DD");
         timeField.setPromptText("HH:MM:SS");
         statusField.setPromptText("Status");
+        minutesField.setPromptText("Minutes (" + DEFAULT_MINUTES + ")");
 
         Button addButton = new Button("Add Appointment");
         addButton.setOnAction(e -> addAppointment());
@@ -58,7 +112,11 @@ public class AdminAppointmentPage extends Application {
         Button deleteButton = new Button("Delete Selected");
         deleteButton.setOnAction(e -> deleteAppointment());
 
-        HBox inputBox = new HBox(10, userIdField, dateField, timeField, statusField, addButton, deleteButton);
+        ProgressIndicator busy = new ProgressIndicator();
+        busy.setPrefSize(20, 20);
+        busy.visibleProperty().bind(AsyncDb.busyProperty());
+
+        HBox inputBox = new HBox(10, userIdField, dateField, timeField, statusField, minutesField, addButton, deleteButton, busy);
         inputBox.setPadding(new Insets(10));
         inputBox.setAlignment(Pos.CENTER);
 
@@ -71,13 +129,68 @@ public class AdminAppointmentPage extends Application {
     }
 
     private void loadAppointments() {
-        data.clear();
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM appointments")) {
+        pager.reload();
+    }
 
+    // Seek pagination on (date, time, appointment_id)
+    static List<Appointment> appointmentsAfter(Connection conn, Appointment row, int limit) throws SQLException {
+        if (row == null) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT * FROM appointments ORDER BY date, time, appointment_id LIMIT ?")) {
+                stmt.setInt(1, limit);
+                return readAppointments(stmt);
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT * FROM appointments " +
+                 "WHERE date > ? OR (date = ? AND (time > ? OR (time = ? AND appointment_id > ?))) " +
+                 "ORDER BY date, time, appointment_id LIMIT ?")) {
+            bindKey(stmt, row);
+            stmt.setInt(6, limit);
+            return readAppointments(stmt);
+        }
+    }
+
+    static List<Appointment> appointmentsBefore(Connection conn, Appointment row, int limit) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT * FROM appointments " +
+                 "WHERE date < ? OR (date = ? AND (time < ? OR (time = ? AND appointment_id < ?))) " +
+                 "ORDER BY date DESC, time DESC, appointment_id DESC LIMIT ?")) {
+            bindKey(stmt, row);
+            stmt.setInt(6, limit);
+            List<Appointment> rows = readAppointments(stmt);
+            Collections.reverse(rows);
+            return rows;
+        }
+    }
+
+    static ChangeTracking.ChangeSet<Appointment> appointmentChangesSince(Connection conn, Timestamp since) throws SQLException {
+        Timestamp asOf = ChangeTracking.now(conn);
+        List<Appointment> upserts;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT * FROM appointments WHERE updated_at >= ?")) {
+            stmt.setTimestamp(1, since);
+            upserts = readAppointments(stmt);
+        }
+        Map<Integer, Integer> deleted = ChangeTracking.deletedSince(conn, "appointments", since);
+        return new ChangeTracking.ChangeSet<>(upserts, deleted, asOf);
+    }
+
+    private static void bindKey(PreparedStatement stmt, Appointment row) throws SQLException {
+        stmt.setString(1, row.getDate());
+        stmt.setString(2, row.getDate());
+        stmt.setString(3, row.getTime());
+        stmt.setString(4, row.getTime());
+        stmt.setInt(5, row.getAppointmentId());
+    }
+
+    private static List<Appointment> readAppointments(PreparedStatement stmt) throws SQLException {
+        List<Appointment> rows = new ArrayList<>();
+        long t = Metrics.start();
+        try (ResultSet rs = stmt.executeQuery()) {
+            t = LOAD_EXECUTE.stop(t);
             while (rs.next()) {
-                data.add(new Appointment(
+                rows.add(new Appointment(
                     rs.getInt("appointment_id"),
                     rs.getInt("user_id"),
                     rs.getString("date"),
@@ -85,26 +198,96 @@ public class AdminAppointmentPage extends Application {
                     rs.getString("status")
                 ));
             }
-        } catch (SQLException e) {
-            showAlert("Error loading appointments: " + e.getMessage());
         }
+        LOAD_MAP.stop(t);
+        return rows;
     }
 
     private void addAppointment() {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "INSERT INTO appointments (user_id, date, time, status) VALUES (?, ?, ?, ?)")) {
-
-            stmt.setInt(1, Integer.parseInt(userIdField.getText()));
-            stmt.setString(2, dateField.getText());
-            stmt.setString(3, timeField.getText());
-            stmt.setString(4, statusField.getText());
-            stmt.executeUpdate();
+        int userId;
+        int minutes;
+        try {
+            userId = Integer.parseInt(userIdField.getText());
+            minutes = minutesField.getText().isBlank() ? DEFAULT_MINUTES : Integer.parseInt(minutesField.getText().trim());
+        } catch (NumberFormatException e) {
+            showAlert("Error adding appointment: " + e.getMessage());
+            return;
+        }
+        String date = dateField.getText();
+        String time = timeField.getText();
+        String status = statusField.getText();
 
-            loadAppointments();
+        AsyncDb.run(conn -> insertAppointment(conn, userId, date, time, status, minutes), clash -> {
+            if (clash != NONE) {
+                showAlert("User " + userId + " already has appointment " + clash + " at that time.");
+                return;
+            }
+            invalidateAvailability(date);
+            pager.refresh();
             clearFields();
-        } catch (SQLException | NumberFormatException e) {
-            showAlert("Error adding appointment: " + e.getMessage());
+        }, e -> showAlert("Error adding appointment: " + e.getMessage()));
+    }
+
+    // Inserts the row unless it overlaps another of the user's appointments; returns the
+    // id it overlaps, or -1 once inserted. The user's rows in the window are locked and
+    // checked first, which holds off other instances, and the interval is reserved before
+    // the commit, which holds off other admins in this process.
+    private static int insertAppointment(Connection conn, int userId, String date, String time, String status,
+                                         int minutes) throws SQLException {
+        BOOKINGS.ensureLoaded(conn);
+        long start = startOf(date, time, status);
+        long end = start + minutes * 60L;
+        int reserved = NONE;
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO appointments (user_id, date, time, status, duration_minutes) VALUES (?, ?, ?, ?, ?)",
+                 Statement.RETURN_GENERATED_KEYS)) {
+
+            if (start != Long.MIN_VALUE) {
+                int clash = BOOKINGS.verify(conn, userId, NONE, start, end);
+                if (clash != NONE) {
+                    conn.rollback();
+                    return clash;
+                }
+            }
+            stmt.setInt(1, userId);
+            stmt.setString(2, date);
+            stmt.setString(3, time);
+            stmt.setString(4, status);
+            stmt.setInt(5, minutes);
+            stmt.executeUpdate();
+            if (start != Long.MIN_VALUE) {
+                int id;
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    keys.next();
+                    id = keys.getInt(1);
+                }
+                int clash = BOOKINGS.reserve(userId, id, start, end);
+                if (clash != NONE) {
+                    conn.rollback();
+                    return clash;
+                }
+                reserved = id;
+            }
+            conn.commit();
+            if (reserved != NONE) BOOKINGS.confirm(userId, reserved);
+            return NONE;
+        } catch (SQLException e) {
+            conn.rollback();
+            if (reserved != NONE) BOOKINGS.remove(userId, reserved);
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // Start of a row that occupies time, in epoch seconds; Long.MIN_VALUE for cancelled or unparseable rows
+    private static long startOf(String date, String time, String status) {
+        if (date == null || time == null || Appointment.Status.CANCELLED.label.equals(status)) return Long.MIN_VALUE;
+        try {
+            return LocalDateTime.of(LocalDate.parse(date), LocalTime.parse(time)).toEpochSecond(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
         }
     }
 
@@ -115,13 +298,36 @@ public class AdminAppointmentPage extends Application {
             return;
         }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("DELETE FROM appointments WHERE appointment_id = ?")) {
-            stmt.setInt(1, selected.getAppointmentId());
-            stmt.executeUpdate();
-            loadAppointments();
-        } catch (SQLException e) {
-            showAlert("Error deleting appointment: " + e.getMessage());
+        int appointmentId = selected.getAppointmentId();
+        AsyncDb.run(conn -> {
+            // The tombstone lets other open admin pages drop the row on their next refresh
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM appointments WHERE appointment_id = ?")) {
+                stmt.setInt(1, appointmentId);
+                int rows = stmt.executeUpdate();
+                ChangeTracking.recordDelete(conn, "appointments", appointmentId, null);
+                conn.commit();
+                BOOKINGS.remove(selected.getUserId(), appointmentId);
+                return rows;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }, rows -> {
+            invalidateAvailability(selected.getDate());
+            pager.refresh();
+        },
+           e -> showAlert("Error deleting appointment: " + e.getMessage()));
+    }
+
+    // Clients in this process must not keep serving the day's cached availability
+    private static void invalidateAvailability(String date) {
+        try {
+            AvailabilityCache.invalidate(LocalDate.parse(date));
+        } catch (DateTimeParseException e) {
+            AvailabilityCache.invalidateAll();
         }
     }
 
@@ -130,6 +336,7 @@ public class AdminAppointmentPage extends Application {
         dateField.clear();
         timeField.clear();
         statusField.clear();
+        minutesField.clear();
     }
 
     private void showAlert(String message) {
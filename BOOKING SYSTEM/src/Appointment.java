@@ -1,33 +1,143 @@
-import javafx.beans.property.*;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
 
-public class Appointment {
-    private final IntegerProperty appointmentId;
-    private final IntegerProperty userId;
-    private final StringProperty date;
-    private final StringProperty time;
-    private final StringProperty status;
+// One row of the admin appointments table. Rows are immutable and kept compact:
+// ids are primitives, date and time are stored as epoch day and second of day, and
+// the status is a shared constant. Properties are only created when a table cell
+// asks for one, so rows that are never on screen carry none.
+public final class Appointment {
+
+    public enum Status {
+        AVAILABLE("Available"), BOOKED("Booked"), PENDING("Pending"),
+        CONFIRMED("Confirmed"), CANCELLED("Cancelled"), COMPLETED("Completed");
+
+        final String label;
+
+        Status(String label) {
+            this.label = label;
+        }
+
+        // Exact label match only, so the stored spelling always round-trips
+        static Status of(String label) {
+            for (Status status : values()) {
+                if (status.label.equals(label)) return status;
+            }
+            return null;
+        }
+    }
+
+    // Same order as the SQL key (date, time, appointment_id)
+    public static final Comparator<Appointment> ORDER = Appointment::compareKey;
+
+    private static final int NO_TIME = -1;
+    private static final Comparator<String> STRINGS = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private final int appointmentId;
+    private final int userId;
+    private final int epochDay;
+    private final int secondOfDay;
+    private final Status status;
+    // Values that do not fit the compact form are kept as they came: date, time, status
+    private final String[] raw;
 
     public Appointment(int appointmentId, int userId, String date, String time, String status) {
-        this.appointmentId = new SimpleIntegerProperty(appointmentId);
-        this.userId = new SimpleIntegerProperty(userId);
-        this.date = new SimpleStringProperty(date);
-        this.time = new SimpleStringProperty(time);
-        this.status = new SimpleStringProperty(status);
+        this.appointmentId = appointmentId;
+        this.userId = userId;
+        int day = 0;
+        int second = NO_TIME;
+        try {
+            if (date != null && date.length() == 10) {
+                day = (int) LocalDate.parse(date).toEpochDay();
+                second = parseTime(time);
+            }
+        } catch (DateTimeException e) {
+            second = NO_TIME;
+        }
+        this.epochDay = day;
+        this.secondOfDay = second;
+        this.status = Status.of(status);
+        this.raw = second == NO_TIME || this.status == null ? new String[] { date, time, status } : null;
     }
 
-    public int getAppointmentId() { return appointmentId.get(); }
-    public IntegerProperty appointmentIdProperty() { return appointmentId; }
+    // HH:mm:ss, the format TIME columns come back in; -1 for anything else
+    private static int parseTime(String time) {
+        if (time == null || time.length() != 8 || time.charAt(2) != ':' || time.charAt(5) != ':') return NO_TIME;
+        int h = twoDigits(time, 0), m = twoDigits(time, 3), s = twoDigits(time, 6);
+        if (h < 0 || h > 23 || m < 0 || m > 59 || s < 0 || s > 59) return NO_TIME;
+        return h * 3600 + m * 60 + s;
+    }
+
+    private static int twoDigits(String text, int at) {
+        char a = text.charAt(at), b = text.charAt(at + 1);
+        if (a < '0' || a > '9' || b < '0' || b > '9') return -1;
+        return (a - '0') * 10 + (b - '0');
+    }
 
-    public int getUserId() { return userId.get(); }
-    public IntegerProperty userIdProperty() { return userId; }
+    private boolean compact() {
+        return secondOfDay != NO_TIME;
+    }
 
-    public String getDate() { return date.get(); }
-    public StringProperty dateProperty() { return date; }
+    private int compareKey(Appointment other) {
+        int c;
+        if (compact() && other.compact()) {
+            c = Integer.compare(epochDay, other.epochDay);
+            if (c == 0) c = Integer.compare(secondOfDay, other.secondOfDay);
+        } else {
+            c = STRINGS.compare(getDate(), other.getDate());
+            if (c == 0) c = STRINGS.compare(getTime(), other.getTime());
+        }
+        return c != 0 ? c : Integer.compare(appointmentId, other.appointmentId);
+    }
 
-    public String getTime() { return time.get(); }
-    public StringProperty timeProperty() { return time; }
+    boolean sameAs(Appointment other) {
+        return appointmentId == other.appointmentId && userId == other.userId && epochDay == other.epochDay
+            && secondOfDay == other.secondOfDay && status == other.status && Arrays.equals(raw, other.raw);
+    }
 
-    public String getStatus() { return status.get(); }
-    public StringProperty statusProperty() { return status; }
-}
+    public int getAppointmentId() { return appointmentId; }
+    public int getUserId() { return userId; }
 
+    public String getDate() {
+        return compact() ? LocalDate.ofEpochDay(epochDay).toString() : raw[0];
+    }
+
+    public String getTime() {
+        if (!compact()) return raw[1];
+        int h = secondOfDay / 3600, m = secondOfDay / 60 % 60, s = secondOfDay % 60;
+        return new String(new char[] {
+            (char) ('0' + h / 10), (char) ('0' + h % 10), ':',
+            (char) ('0' + m / 10), (char) ('0' + m % 10), ':',
+            (char) ('0' + s / 10), (char) ('0' + s % 10) });
+    }
+
+    public String getStatus() {
+        return status != null ? status.label : raw[2];
+    }
+
+    // Properties for table cells; created on demand, read-only because rows are immutable
+    public ReadOnlyIntegerProperty appointmentIdProperty() {
+        return new ReadOnlyIntegerWrapper(this, "appointmentId", appointmentId).getReadOnlyProperty();
+    }
+
+    public ReadOnlyIntegerProperty userIdProperty() {
+        return new ReadOnlyIntegerWrapper(this, "userId", userId).getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty dateProperty() {
+        return new ReadOnlyStringWrapper(this, "date", getDate()).getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty timeProperty() {
+        return new ReadOnlyStringWrapper(this, "time", getTime()).getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty statusProperty() {
+        return new ReadOnlyStringWrapper(this, "status", getStatus()).getReadOnlyProperty();
+    }
+}
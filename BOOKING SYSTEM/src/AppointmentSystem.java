@@ -1,4 +1,5 @@
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -9,65 +10,35 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class AppointmentSystem extends Application {
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/appointment_system";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "";
+    private final BookingService service = new BookingService();
 
+    private static final int APPOINTMENT_PAGE_SIZE = 200;
+    private static final int APPOINTMENT_MAX_PAGES = 5;
     public static void main(String[] args) {
         launch(args);
     }
 
     @Override
     public void start(Stage primaryStage) {
-        initializeDatabase();
+        service.start().exceptionally(ex -> {
+            System.err.println("Failed to load slot index: " + ex.getMessage());
+            return null;
+        });
         showLoginScreen(primaryStage);
     }
 
-    private void initializeDatabase() {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             Statement stmt = conn.createStatement()) {
-            
-            // Create tables
-            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS user (" +
-                             "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                             "username VARCHAR(50) NOT NULL UNIQUE, " +
-                             "password VARCHAR(100) NOT NULL, " +
-                             "is_admin BOOLEAN DEFAULT FALSE)");
-            
-            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS slot (" +
-                             "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                             "start_time DATETIME NOT NULL, " +
-                             "end_time DATETIME NOT NULL, " +
-                             "is_available BOOLEAN DEFAULT TRUE)");
-            
-            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS appointment (" +
-                             "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                             "user_id INT NOT NULL, " +
-                             "slot_id INT NOT NULL, " +
-                             "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                             "FOREIGN KEY (user_id) REFERENCES user(id), " +
-                             "FOREIGN KEY (slot_id) REFERENCES slot(id))");
-            
-            // Insert admin user if not exists
-            stmt.executeUpdate("INSERT IGNORE INTO user (username, password, is_admin) VALUES " +
-                             "('admin', 'admin123', TRUE)");
-            
-            // Insert sample slots if empty
-            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM slot");
-            rs.next();
-            if (rs.getInt(1) == 0) {
-                stmt.executeUpdate("INSERT INTO slot (start_time, end_time) VALUES " +
-                                 "(NOW() + INTERVAL 1 DAY + INTERVAL 9 HOUR, NOW() + INTERVAL 1 DAY + INTERVAL 10 HOUR), " +
-                                 "(NOW() + INTERVAL 1 DAY + INTERVAL 11 HOUR, NOW() + INTERVAL 1 DAY + INTERVAL 12 HOUR), " +
-                                 "(NOW() + INTERVAL 2 DAY + INTERVAL 9 HOUR, NOW() + INTERVAL 2 DAY + INTERVAL 10 HOUR)");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    @Override
+    public void stop() {
+        service.stop();
     }
 
     private void showLoginScreen(Stage stage) {
@@ -90,28 +61,25 @@ public class AppointmentSystem extends Application {
         grid.add(registerBtn, 1, 3);
 
         loginBtn.setOnAction(e -> {
-            try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-                 PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT id, is_admin FROM user WHERE username = ? AND password = ?")) {
-                
-                stmt.setString(1, usernameField.getText());
-                stmt.setString(2, passwordField.getText());
-                ResultSet rs = stmt.executeQuery();
-                
-                if (rs.next()) {
-                    int userId = rs.getInt("id");
-                    boolean isAdmin = rs.getBoolean("is_admin");
-                    if (isAdmin) {
-                        showAdminDashboard(stage, userId);
-                    } else {
-                        showUserDashboard(stage, userId);
-                    }
-                } else {
+            String username = usernameField.getText();
+            String password = passwordField.getText();
+            loginBtn.setDisable(true);
+            AsyncDb.deliver(service.login(username, password), user -> {
+                loginBtn.setDisable(false);
+                if (user == null) {
                     showAlert("Login Failed", "Invalid credentials");
+                    return;
                 }
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+                Session.begin(user);
+                if (user.isAdmin) {
+                    showAdminDashboard(stage);
+                } else {
+                    showUserDashboard(stage);
+                }
+            }, ex -> {
+                loginBtn.setDisable(false);
+                AsyncDb.logError(ex);
+            });
         });
 
         registerBtn.setOnAction(e -> showRegistrationScreen(stage));
@@ -141,18 +109,21 @@ public class AppointmentSystem extends Application {
         grid.add(backBtn, 1, 3);
 
         registerBtn.setOnAction(e -> {
-            try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-                 PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT INTO user (username, password) VALUES (?, ?)")) {
-                
-                stmt.setString(1, usernameField.getText());
-                stmt.setString(2, passwordField.getText());
-                stmt.executeUpdate();
+            String username = usernameField.getText();
+            String password = passwordField.getText();
+            registerBtn.setDisable(true);
+            AsyncDb.deliver(service.register(username, password), created -> {
+                if (!created) {
+                    registerBtn.setDisable(false);
+                    showAlert("Error", "Registration failed: username already taken");
+                    return;
+                }
                 showAlert("Success", "Registration successful!");
                 showLoginScreen(stage);
-            } catch (SQLException ex) {
+            }, ex -> {
+                registerBtn.setDisable(false);
                 showAlert("Error", "Registration failed: " + ex.getMessage());
-            }
+            });
         });
 
         backBtn.setOnAction(e -> showLoginScreen(stage));
@@ -161,7 +132,8 @@ public class AppointmentSystem extends Application {
         stage.setTitle("Appointment System - Register");
     }
 
-    private void showUserDashboard(Stage stage, int userId) {
+    private void showUserDashboard(Stage stage) {
+        CredentialService.Account user = Session.current();
         VBox root = new VBox(10);
         root.setPadding(new Insets(20));
 
@@ -183,88 +155,182 @@ public class AppointmentSystem extends Application {
         statusCol.setCellValueFactory(new PropertyValueFactory<>("status"));
         
         slotTable.getColumns().addAll(idCol, startCol, endCol, statusCol);
-        refreshSlots(slotTable);
+        slotTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        AsyncDb.Latest<List<Slot>> slotLoader = new AsyncDb.Latest<>();
+        refreshSlots(slotTable, slotLoader);
 
-        Button bookBtn = new Button("Book Selected Slot");
+        Button bookBtn = new Button("Book Selected Slots");
         bookBtn.setOnAction(e -> {
-            Slot selected = slotTable.getSelectionModel().getSelectedItem();
-            if (selected != null && selected.isAvailable()) {
-                bookAppointment(stage, userId, selected.getId());
+            List<Slot> selected = new ArrayList<>(slotTable.getSelectionModel().getSelectedItems());
+            if (selected.isEmpty() || !selected.stream().allMatch(Slot::isAvailable)) {
+                showAlert("Error", "Please select available slots only");
+            } else if (selected.size() == 1) {
+                bookAppointment(stage, user.id, selected.get(0).getId(), bookBtn);
             } else {
-                showAlert("Error", "Please select an available slot");
+                bookSeries(stage, user.id, selected, bookBtn);
+            }
+        });
+
+        // Earliest open slot from now on, of at least the given length, picked from the index
+        TextField minutesField = new TextField();
+        minutesField.setPromptText("Min. minutes");
+        minutesField.setPrefWidth(90);
+        Button nextBtn = new Button("Find Next Slot");
+        nextBtn.setOnAction(e -> {
+            int minutes;
+            try {
+                minutes = minutesField.getText().isBlank() ? 0 : Integer.parseInt(minutesField.getText().trim());
+            } catch (NumberFormatException ex) {
+                showAlert("Error", "Minutes must be a number");
+                return;
             }
+            AsyncDb.deliver(service.whenReady().thenApply(v -> service.nextAvailable(LocalDateTime.now(), minutes, null)),
+                slot -> {
+                    if (slot == null) {
+                        showAlert("No Slots", "There is no open slot of at least " + minutes + " minutes.");
+                        return;
+                    }
+                    selectSlot(slotTable, slot);
+                }, AsyncDb::logError);
         });
 
-        refreshBtn.setOnAction(e -> refreshSlots(slotTable));
-        logoutBtn.setOnAction(e -> showLoginScreen(stage));
+        refreshBtn.setOnAction(e -> refreshSlots(slotTable, slotLoader));
+        logoutBtn.setOnAction(e -> {
+            slotLoader.cancel();
+            Session.end();
+            showLoginScreen(stage);
+        });
 
-        HBox buttonBox = new HBox(10, bookBtn, refreshBtn, logoutBtn);
+        HBox buttonBox = new HBox(10, bookBtn, minutesField, nextBtn, refreshBtn, logoutBtn, busyIndicator());
         root.getChildren().addAll(title, slotTable, buttonBox);
 
         stage.setScene(new Scene(root, 600, 400));
-        stage.setTitle("User Dashboard");
+        stage.setTitle("User Dashboard - " + user.username);
     }
 
-    private void refreshSlots(TableView<Slot> table) {
-        ObservableList<Slot> slots = FXCollections.observableArrayList();
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(
-                 "SELECT s.id, s.start_time, s.end_time, s.is_available " +
-                 "FROM slot s LEFT JOIN appointment a ON s.id = a.slot_id " +
-                 "WHERE s.is_available = TRUE OR a.id IS NULL")) {
-            
-            while (rs.next()) {
-                slots.add(new Slot(
-                    rs.getInt("id"),
-                    rs.getTimestamp("start_time").toLocalDateTime(),
-                    rs.getTimestamp("end_time").toLocalDateTime(),
-                    rs.getBoolean("is_available")
-                ));
+    // Selects the slot's row, merging it in first since the table may not have caught up with the index
+    private void selectSlot(TableView<Slot> table, Slot slot) {
+        ChangeTracking.apply(table.getItems(), List.of(slot), List.of(), Slot::getId, Slot.ORDER, Slot::sameAs, s -> true);
+        for (int i = 0; i < table.getItems().size(); i++) {
+            if (table.getItems().get(i).getId() == slot.getId()) {
+                table.getSelectionModel().clearAndSelect(i);
+                table.scrollTo(i);
+                return;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
-        table.setItems(slots);
     }
 
-    private void bookAppointment(Stage stage, int userId, int slotId) {
+    // Served from the resident slot index; no query runs unless the index is still loading.
+    // Only rows that changed since the table was last filled are touched.
+    private void refreshSlots(TableView<Slot> table, AsyncDb.Latest<List<Slot>> loader) {
+        table.setPlaceholder(new Label("Loading..."));
+        loader.submit(service.whenReady().thenApply(v -> service.availableSlots()), slots -> {
+            Map<Integer, Slot> current = new HashMap<>();
+            for (Slot slot : slots) {
+                current.put(slot.getId(), slot);
+            }
+            List<Integer> gone = new ArrayList<>();
+            for (Slot shown : table.getItems()) {
+                if (!current.containsKey(shown.getId())) gone.add(shown.getId());
+            }
+            ChangeTracking.apply(table.getItems(), slots, gone, Slot::getId, Slot.ORDER, Slot::sameAs, slot -> true);
+        }, AsyncDb::logError);
+    }
+
+    private void bookAppointment(Stage stage, int userId, int slotId, Button bookBtn) {
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
         confirm.setTitle("Confirm Booking");
         confirm.setHeaderText("Book this appointment slot?");
         Optional<ButtonType> result = confirm.showAndWait();
         
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
-                // Start transaction
-                conn.setAutoCommit(false);
-                
-                try (PreparedStatement updateSlot = conn.prepareStatement(
-                         "UPDATE slot SET is_available = FALSE WHERE id = ?");
-                     PreparedStatement insertAppt = conn.prepareStatement(
-                         "INSERT INTO appointment (user_id, slot_id) VALUES (?, ?)")) {
-                    
-                    updateSlot.setInt(1, slotId);
-                    updateSlot.executeUpdate();
-                    
-                    insertAppt.setInt(1, userId);
-                    insertAppt.setInt(2, slotId);
-                    insertAppt.executeUpdate();
-                    
-                    conn.commit();
+            bookBtn.setDisable(true);
+            AsyncDb.run(conn -> service.book(conn, userId, slotId), outcome -> {
+                if (outcome == BookingEngine.Outcome.BOOKED) {
                     showAlert("Success", "Appointment booked successfully!");
-                    showUserDashboard(stage, userId);
-                } catch (SQLException e) {
-                    conn.rollback();
-                    throw e;
+                } else if (outcome == BookingEngine.Outcome.CONFLICT) {
+                    showAlert("Time Conflict", "You already have an appointment overlapping this slot.");
+                } else {
+                    offerWaitlist(userId, slotId);
                 }
-            } catch (SQLException e) {
-                showAlert("Error", "Failed to book appointment: " + e.getMessage());
+                showUserDashboard(stage);
+            }, ex -> {
+                bookBtn.setDisable(false);
+                showAlert("Error", "Failed to book appointment: " + ex.getMessage());
+            });
+        }
+    }
+
+    // A taken slot can be waited for; the user is told when a cancellation hands it to them
+    private void offerWaitlist(int userId, int slotId) {
+        Alert ask = new Alert(Alert.AlertType.CONFIRMATION);
+        ask.setTitle("Slot Taken");
+        ask.setHeaderText("Someone else just booked this slot.");
+        ask.setContentText("Join the waitlist? You get the slot automatically if it is cancelled.");
+        Optional<ButtonType> answer = ask.showAndWait();
+        if (answer.isEmpty() || answer.get() != ButtonType.OK) return;
+
+        AsyncDb.run(conn -> service.joinWaitlist(conn, userId, slotId), position -> {
+            if (position == 0) {
+                showAlert("Slot Open", "The slot has just become free again. Refresh and book it.");
+                return;
+            }
+            showAlert("Waitlist", "You are number " + position + " in line for this slot.");
+            // Only registering the watcher counts as busy; the wait itself may last indefinitely
+            AsyncDb.run(conn -> service.whenHandedOff(conn, userId, slotId), watcher ->
+                watcher.thenAccept(handedOff -> {
+                    if (handedOff) {
+                        Platform.runLater(() -> showAlert("Slot Booked",
+                            "A cancellation freed slot " + slotId + " and it is now booked for you."));
+                    }
+                }), AsyncDb::logError);
+        }, ex -> showAlert("Error", "Failed to join the waitlist: " + ex.getMessage()));
+    }
+
+    // Books several slots at once (e.g. a weekly series) with one confirmation and one transaction
+    private void bookSeries(Stage stage, int userId, List<Slot> slots, Button bookBtn) {
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+        confirm.setTitle("Confirm Booking");
+        confirm.setHeaderText("Book these " + slots.size() + " appointment slots?");
+        Optional<ButtonType> result = confirm.showAndWait();
+
+        if (result.isPresent() && result.get() == ButtonType.OK) {
+            List<Integer> slotIds = new ArrayList<>();
+            for (Slot slot : slots) {
+                slotIds.add(slot.getId());
             }
+            bookBtn.setDisable(true);
+            AsyncDb.run(conn -> service.bookSeries(conn, userId, slotIds), outcomes -> {
+                if (!outcomes.containsValue(BookingEngine.Outcome.LOST_RACE)
+                        && !outcomes.containsValue(BookingEngine.Outcome.CONFLICT)) {
+                    showAlert("Success", slotIds.size() + " appointments booked successfully!");
+                } else if (outcomes.containsValue(BookingEngine.Outcome.CONFLICT)) {
+                    StringBuilder overlapping = new StringBuilder();
+                    outcomes.forEach((slotId, outcome) -> {
+                        if (outcome == BookingEngine.Outcome.CONFLICT) {
+                            overlapping.append(overlapping.length() == 0 ? "" : ", ").append(slotId);
+                        }
+                    });
+                    showAlert("Time Conflict", "Nothing was booked because these slots overlap your other appointments: " + overlapping);
+                } else {
+                    StringBuilder taken = new StringBuilder();
+                    outcomes.forEach((slotId, outcome) -> {
+                        if (outcome == BookingEngine.Outcome.LOST_RACE) {
+                            taken.append(taken.length() == 0 ? "" : ", ").append(slotId);
+                        }
+                    });
+                    showAlert("Slots Taken", "Nothing was booked because these slots were just taken: " + taken);
+                }
+                showUserDashboard(stage);
+            }, ex -> {
+                bookBtn.setDisable(false);
+                showAlert("Error", "Failed to book appointments: " + ex.getMessage());
+            });
         }
     }
 
-    private void showAdminDashboard(Stage stage, int adminId) {
+    private void showAdminDashboard(Stage stage) {
+        CredentialService.Account admin = Session.current();
         VBox root = new VBox(10);
         root.setPadding(new Insets(20));
 
@@ -286,41 +352,85 @@ public class AppointmentSystem extends Application {
         bookedCol.setCellValueFactory(new PropertyValueFactory<>("createdAt"));
         
         apptTable.getColumns().addAll(idCol, userCol, slotCol, bookedCol);
-        refreshAppointments(apptTable);
+        KeysetPager<AppointmentView> pager = new KeysetPager<>(apptTable, new KeysetPager.PageQuery<>() {
+            public List<AppointmentView> after(Connection conn, AppointmentView row, int limit) throws SQLException {
+                return BookingService.appointmentsAfter(conn, row, limit);
+            }
+
+            public List<AppointmentView> before(Connection conn, AppointmentView row, int limit) throws SQLException {
+                return BookingService.appointmentsBefore(conn, row, limit);
+            }
+        }, APPOINTMENT_PAGE_SIZE, APPOINTMENT_MAX_PAGES);
+        pager.enableDelta(BookingService::appointmentChangesSince, AppointmentView::getId,
+            AppointmentView.ORDER, AppointmentView::sameAs);
+        pager.reload();
+
+        Button cancelBtn = new Button("Cancel Appointment");
+        cancelBtn.setOnAction(e -> {
+            AppointmentView selected = apptTable.getSelectionModel().getSelectedItem();
+            if (selected == null) {
+                showAlert("Error", "Please select an appointment");
+                return;
+            }
+            cancelBtn.setDisable(true);
+            AsyncDb.run(conn -> service.cancel(conn, admin, selected.getId()), cancelled -> {
+                cancelBtn.setDisable(false);
+                if (!cancelled) {
+                    showAlert("Error", "The appointment no longer exists");
+                }
+                pager.refresh();
+            }, ex -> {
+                cancelBtn.setDisable(false);
+                showAlert("Error", "Failed to cancel appointment: " + ex.getMessage());
+            });
+        });
+
+        // Every appointment of a day at once, e.g. when the office is closed
+        DatePicker dayPicker = new DatePicker(LocalDate.now());
+        Button cancelDayBtn = new Button("Cancel Day");
+        cancelDayBtn.setOnAction(e -> {
+            LocalDate day = dayPicker.getValue();
+            if (day == null) {
+                showAlert("Error", "Please pick a day");
+                return;
+            }
+            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+            confirm.setTitle("Cancel Day");
+            confirm.setHeaderText("Cancel every appointment on " + day + "?");
+            Optional<ButtonType> result = confirm.showAndWait();
+            if (result.isEmpty() || result.get() != ButtonType.OK) return;
+
+            cancelDayBtn.setDisable(true);
+            AsyncDb.run(conn -> service.cancelDay(conn, admin, day), count -> {
+                cancelDayBtn.setDisable(false);
+                showAlert("Cancelled", count + " appointments on " + day + " were cancelled.");
+                pager.refresh();
+            }, ex -> {
+                cancelDayBtn.setDisable(false);
+                showAlert("Error", "Failed to cancel the day: " + ex.getMessage());
+            });
+        });
 
-        refreshBtn.setOnAction(e -> refreshAppointments(apptTable));
-        logoutBtn.setOnAction(e -> showLoginScreen(stage));
+        refreshBtn.setOnAction(e -> pager.refresh());
+        logoutBtn.setOnAction(e -> {
+            pager.cancel();
+            Session.end();
+            showLoginScreen(stage);
+        });
 
-        HBox buttonBox = new HBox(10, refreshBtn, logoutBtn);
+        HBox buttonBox = new HBox(10, cancelBtn, dayPicker, cancelDayBtn, refreshBtn, logoutBtn, busyIndicator());
         root.getChildren().addAll(title, apptTable, buttonBox);
 
         stage.setScene(new Scene(root, 800, 600));
-        stage.setTitle("Admin Dashboard");
+        stage.setTitle("Admin Dashboard - " + admin.username);
     }
 
-    private void refreshAppointments(TableView<AppointmentView> table) {
-        ObservableList<AppointmentView> appointments = FXCollections.observableArrayList();
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(
-                 "SELECT a.id, u.username, s.start_time, s.end_time, a.created_at " +
-                 "FROM appointment a " +
-                 "JOIN user u ON a.user_id = u.id " +
-                 "JOIN slot s ON a.slot_id = s.id")) {
-            
-            while (rs.next()) {
-                appointments.add(new AppointmentView(
-                    rs.getInt("id"),
-                    rs.getString("username"),
-                    rs.getTimestamp("start_time").toLocalDateTime(),
-                    rs.getTimestamp("end_time").toLocalDateTime(),
-                    rs.getTimestamp("created_at").toLocalDateTime()
-                ));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        table.setItems(appointments);
+    // Spinner shown while any background query is running
+    private ProgressIndicator busyIndicator() {
+        ProgressIndicator indicator = new ProgressIndicator();
+        indicator.setPrefSize(20, 20);
+        indicator.visibleProperty().bind(AsyncDb.busyProperty());
+        return indicator;
     }
 
     private void showAlert(String title, String message) {
@@ -330,49 +440,4 @@ public class AppointmentSystem extends Application {
         alert.setContentText(message);
         alert.showAndWait();
     }
-
-    // Model classes
-    public static class Slot {
-        private final int id;
-        private final LocalDateTime startTime;
-        private final LocalDateTime endTime;
-        private final boolean isAvailable;
-
-        public Slot(int id, LocalDateTime startTime, LocalDateTime endTime, boolean isAvailable) {
-            this.id = id;
-            this.startTime = startTime;
-            this.endTime = endTime;
-            this.isAvailable = isAvailable;
-        }
-
-        public int getId() { return id; }
-        public String getStartTime() { return startTime.toString(); }
-        public String getEndTime() { return endTime.toString(); }
-        public String getStatus() { return isAvailable ? "Available" : "Booked"; }
-        public boolean isAvailable() { return isAvailable; }
-    }
-
-    public static class AppointmentView {
-        private final int id;
-        private final String username;
-        private final LocalDateTime startTime;
-        private final LocalDateTime endTime;
-        private final LocalDateTime createdAt;
-
-        public AppointmentView(int id, String username, LocalDateTime startTime, 
-                             LocalDateTime endTime, LocalDateTime createdAt) {
-            this.id = id;
-            this.username = username;
-            this.startTime = startTime;
-            this.endTime = endTime;
-            this.createdAt = createdAt;
-        }
-
-        public int getId() { return id; }
-        public String getUsername() { return username; }
-        public String getSlotTime() { 
-            return startTime.toString() + " to " + endTime.toString(); 
-        }
-        public String getCreatedAt() { return createdAt.toString(); }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Objects;
+
+// A booked slot as listed to admins (AppointmentSystem schema)
+public class AppointmentView {
+    final int id;
+    final int userId;
+    private final String username;
+    final LocalDateTime startTime;
+    final LocalDateTime endTime;
+    private final LocalDateTime createdAt;
+
+    public AppointmentView(int id, int userId, String username, LocalDateTime startTime,
+                         LocalDateTime endTime, LocalDateTime createdAt) {
+        this.id = id;
+        this.userId = userId;
+        this.username = username;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.createdAt = createdAt;
+    }
+
+    static final Comparator<AppointmentView> ORDER =
+        Comparator.comparing((AppointmentView a) -> a.startTime).thenComparingInt(a -> a.id);
+
+    AppointmentView named(String name) {
+        return new AppointmentView(id, userId, name, startTime, endTime, createdAt);
+    }
+
+    boolean sameAs(AppointmentView other) {
+        return id == other.id && Objects.equals(username, other.username) && startTime.equals(other.startTime)
+            && endTime.equals(other.endTime) && createdAt.equals(other.createdAt);
+    }
+
+    public int getId() { return id; }
+    public int getUserId() { return userId; }
+    public String getUsername() { return username; }
+    public String getSlotTime() {
+        return startTime.toString() + " to " + endTime.toString();
+    }
+    public String getCreatedAt() { return createdAt.toString(); }
+}
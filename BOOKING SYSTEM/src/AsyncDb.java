@@ -0,0 +1,118 @@
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.BooleanBinding;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// Runs JDBC work off the JavaFX application thread. Every task gets a pooled
+// connection on a virtual thread; the pool itself bounds how many hit MySQL at once.
+public class AsyncDb {
+
+    public interface SqlWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Number of FX-initiated tasks still running; only touched on the FX thread
+    private static final ReadOnlyIntegerWrapper inFlight = new ReadOnlyIntegerWrapper(0);
+    private static final BooleanBinding busy = Bindings.greaterThan(inFlight, 0);
+
+    public static <T> CompletableFuture<T> supply(SqlWork<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = EXECUTOR.submit(() -> {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                result.complete(work.run(conn));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        // Cancelling the future interrupts a task still waiting for a connection
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) task.cancel(true);
+        });
+        return result;
+    }
+
+    // Runs the work in the background and hands the outcome back on the FX thread
+    public static <T> CompletableFuture<T> run(SqlWork<T> work, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        return deliver(supply(work), onSuccess, onError);
+    }
+
+    public static <T> CompletableFuture<T> deliver(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        inFlight.set(inFlight.get() + 1);
+        future.whenComplete((value, error) -> Platform.runLater(() -> {
+            inFlight.set(inFlight.get() - 1);
+            if (future.isCancelled()) return;
+            if (error == null) {
+                onSuccess.accept(value);
+            } else {
+                onError.accept(unwrap(error));
+            }
+        }));
+        return future;
+    }
+
+    public static ReadOnlyIntegerProperty inFlightProperty() {
+        return inFlight.getReadOnlyProperty();
+    }
+
+    public static BooleanBinding busyProperty() {
+        return busy;
+    }
+
+    public static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    public static void logError(Throwable error) {
+        if (!(error instanceof CancellationException)) {
+            error.printStackTrace();
+        }
+    }
+
+    // Keeps only the newest request for one view: submitting a refresh cancels
+    // the one still running, so stale results never overwrite fresh ones.
+    public static class Latest<T> {
+        private CompletableFuture<T> current;
+
+        public CompletableFuture<T> submit(SqlWork<T> work, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+            return submit(supply(work), onSuccess, onError);
+        }
+
+        public CompletableFuture<T> submit(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+            cancel();
+            current = future;
+            return deliver(future, value -> {
+                if (current == future) {
+                    current = null;
+                    onSuccess.accept(value);
+                }
+            }, error -> {
+                if (current == future) {
+                    current = null;
+                    onError.accept(error);
+                }
+            });
+        }
+
+        public void cancel() {
+            if (current != null) {
+                current.cancel(true);
+                current = null;
+            }
+        }
+    }
+}
@@ -1,43 +1,65 @@
 import java.sql.*;
+import java.util.concurrent.CompletionException;
 
 public class Auth {
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/appointment_system";
-    private static final String DB_USER = "root";
-    private static final String DB_PASS = "";
-
     public static boolean login(String username, String password) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS)) {
-            String query = "SELECT * FROM users WHERE username = ? AND password = ?";
-            PreparedStatement stmt = conn.prepareStatement(query);
+        String stored;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT password FROM users WHERE username = ?")) {
             stmt.setString(1, username);
-            stmt.setString(2, password); // Hash it if you added hashing
-            ResultSet rs = stmt.executeQuery();
-            return rs.next();
+            try (ResultSet rs = stmt.executeQuery()) {
+                stored = rs.next() ? rs.getString(1) : null;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
+
+        // Hashing runs on the credential pool with no connection held; this call keeps its blocking contract
+        CredentialService.Verification result;
+        try {
+            result = CredentialService.verify(password, stored).join();
+        } catch (CompletionException e) {
+            // Pool saturated or hashing failed: a refused login, as a database error is
+            System.err.println("Login check failed: " + AsyncDb.unwrap(e).getMessage());
+            return false;
+        }
+        if (result.matches && result.rehash != null) {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement update = conn.prepareStatement(
+                     "UPDATE users SET password = ? WHERE username = ? AND password = ?")) {
+                update.setString(1, result.rehash);
+                update.setString(2, username);
+                update.setString(3, stored);
+                update.executeUpdate();
+            } catch (SQLException e) {
+                // The old hash still works; try again on the next login
+                System.err.println("Password rehash failed: " + e.getMessage());
+            }
+        }
+        return result.matches;
     }
 
     public static boolean register(String username, String password, String email) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS)) {
-            String checkQuery = "SELECT * FROM users WHERE username = ?";
-            PreparedStatement checkStmt = conn.prepareStatement(checkQuery);
-            checkStmt.setString(1, username);
-            ResultSet rs = checkStmt.executeQuery();
-            if (rs.next()) return false;  // Username exists
-
-            String insertQuery = "INSERT INTO users (username, password, email) VALUES (?, ?, ?)";
-            PreparedStatement insertStmt = conn.prepareStatement(insertQuery);
-            insertStmt.setString(1, username);
-            insertStmt.setString(2, password); // Hash here if needed
-            insertStmt.setString(3, email);
-            insertStmt.executeUpdate();
-            return true;
+        String hash;
+        try {
+            hash = CredentialService.hash(password).join();
+        } catch (CompletionException e) {
+            System.err.println("Password hashing failed: " + AsyncDb.unwrap(e).getMessage());
+            return false;
+        }
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO users (username, password, email) VALUES (?, ?, ?)")) {
+            stmt.setString(1, username);
+            stmt.setString(2, hash);
+            stmt.setString(3, email);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return false;  // Username exists (unique key)
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
 }
-
@@ -0,0 +1,120 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+// Shared cache of the available-appointments query (LoginApp schema), keyed by date
+// range. Every client hitting Refresh within the TTL is answered from one result;
+// a booking or delete drops exactly the ranges that contain the changed appointment.
+public class AvailabilityCache {
+
+    private static final long TTL_MS = Long.getLong("cache.available.ttlMs", 15_000);
+
+    private static final Metrics.Timer EXECUTE = Metrics.timer("available.execute");
+    private static final Metrics.Timer MAP = Metrics.timer("available.map");
+
+    // [from, to) on date_time; a null bound is open
+    public static final class DateRange {
+        public static final DateRange ALL = new DateRange(null, null);
+
+        final LocalDateTime from;
+        final LocalDateTime to;
+
+        public DateRange(LocalDateTime from, LocalDateTime to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public static DateRange day(LocalDate date) {
+            return new DateRange(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+        }
+
+        boolean contains(LocalDateTime time) {
+            return (from == null || !time.isBefore(from)) && (to == null || time.isBefore(to));
+        }
+
+        boolean overlaps(LocalDate date) {
+            LocalDateTime start = date.atStartOfDay();
+            LocalDateTime end = date.plusDays(1).atStartOfDay();
+            return (from == null || end.isAfter(from)) && (to == null || start.isBefore(to));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DateRange)) return false;
+            DateRange other = (DateRange) o;
+            return Objects.equals(from, other.from) && Objects.equals(to, other.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(from, to);
+        }
+    }
+
+    private static final ReadThroughCache<DateRange, List<LoginApp.Appointment>> available =
+        new ReadThroughCache<>("available", TTL_MS, range -> AsyncDb.supply(conn -> List.copyOf(query(conn, range))));
+
+    public static CompletableFuture<List<LoginApp.Appointment>> available(DateRange range) {
+        return available.get(range);
+    }
+
+    // Call after an appointment at this time was booked, released or deleted
+    public static void invalidate(LocalDateTime changed) {
+        available.invalidateIf(range -> range.contains(changed));
+    }
+
+    // For callers that only know the day of the change
+    public static void invalidate(LocalDate changed) {
+        available.invalidateIf(range -> range.overlaps(changed));
+    }
+
+    public static void invalidateAll() {
+        available.invalidateAll();
+    }
+
+    public static double hitRatio() {
+        return available.hitRatio();
+    }
+
+    public static String stats() {
+        return available.stats();
+    }
+
+    static List<LoginApp.Appointment> query(Connection conn, DateRange range) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT * FROM appointments WHERE is_available = TRUE");
+        if (range.from != null) sql.append(" AND date_time >= ?");
+        if (range.to != null) sql.append(" AND date_time < ?");
+        sql.append(" ORDER BY date_time");
+
+        List<LoginApp.Appointment> appointments = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int p = 1;
+            if (range.from != null) stmt.setTimestamp(p++, Timestamp.valueOf(range.from));
+            if (range.to != null) stmt.setTimestamp(p, Timestamp.valueOf(range.to));
+            long t = Metrics.start();
+            try (ResultSet rs = stmt.executeQuery()) {
+                t = EXECUTE.stop(t);
+                while (rs.next()) {
+                    appointments.add(new LoginApp.Appointment(
+                        rs.getInt("id"),
+                        rs.getString("title"),
+                        rs.getString("description"),
+                        rs.getTimestamp("date_time").toLocalDateTime(),
+                        rs.getInt("duration_minutes"),
+                        rs.getBoolean("is_available")
+                    ));
+                }
+            }
+            MAP.stop(t);
+        }
+        return appointments;
+    }
+}
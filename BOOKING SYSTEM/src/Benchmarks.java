@@ -0,0 +1,271 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Throughput benchmarks for the hot code paths, run against an in-process H2
+// database in MySQL mode so results are reproducible offline. Methodology follows
+// JMH: warm-up iterations are discarded, each measured iteration runs for a fixed
+// time, results are consumed into a sink so the JIT cannot drop them.
+//
+// Usage (H2 and JavaFX base on the classpath):
+//   java -cp out:h2.jar:javafx-base.jar:javafx-graphics.jar:javafx-controls.jar Benchmarks [filter]
+// Sizes: -Dbench.slots=50000 -Dbench.users=200 -Dbench.appointments=5000 -Dbench.hotSlots=16
+// Timing: -Dbench.warmups=3 -Dbench.iterations=5 -Dbench.seconds=1 -Dbench.threads=<2 x cores>
+public class Benchmarks {
+
+    private static final String EMBEDDED_URL =
+        "jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+
+    private static final int SLOTS = Integer.getInteger("bench.slots", 50_000);
+    private static final int USERS = Integer.getInteger("bench.users", 200);
+    private static final int APPOINTMENTS = Integer.getInteger("bench.appointments", 5_000);
+    private static final int HOT_SLOTS = Integer.getInteger("bench.hotSlots", 16);
+    private static final int WARMUPS = Integer.getInteger("bench.warmups", 3);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    private static final long SECONDS = Long.getLong("bench.seconds", 1);
+    private static final int THREADS = Integer.getInteger("bench.threads", Runtime.getRuntime().availableProcessors() * 2);
+    private static final String PASSWORD = "benchmark-password";
+
+    interface Op {
+        // Returns something derived from the work so it cannot be optimised away
+        Object run() throws Exception;
+    }
+
+    private static volatile int sink;
+
+    private static SlotAvailabilityIndex index;
+    private static BookingEngine engine;
+    private static int firstSlotId;
+    private static int slotCount;
+
+    public static void main(String[] args) throws Exception {
+        // Must be set before DatabaseConnection is first touched
+        if (System.getProperty("db.url") == null) {
+            System.setProperty("db.url", EMBEDDED_URL);
+            System.setProperty("db.user", "sa");
+        }
+        String filter = args.length > 0 ? args[0] : "";
+
+        long seeded = System.nanoTime();
+        seed();
+        System.out.printf("Seeded %d slots, %d users, %d appointments in %d ms (%s)%n", slotCount, USERS,
+            APPOINTMENTS, (System.nanoTime() - seeded) / 1_000_000, DatabaseConnection.getUrl());
+        System.out.printf("%-40s %7s %4s %14s %12s %10s%n", "Benchmark", "Threads", "Cnt", "Score", "Error", "Units");
+
+        if (matches(filter, "claimSlot.hot")) {
+            resetBookings();
+            run("claimSlot.hot", THREADS, () -> {
+                int slotId = firstSlotId + APPOINTMENTS + ThreadLocalRandom.current().nextInt(HOT_SLOTS);
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    return engine.claimSlot(conn, randomUser(), slotId);
+                }
+            });
+            System.out.println("  " + engine.stats());
+        }
+        if (matches(filter, "claimSlot.spread")) {
+            resetBookings();
+            AtomicInteger cursor = new AtomicInteger(APPOINTMENTS + HOT_SLOTS);
+            run("claimSlot.spread", THREADS, () -> {
+                int slotId = firstSlotId + Math.floorMod(cursor.getAndIncrement(), slotCount);
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    return engine.claimSlot(conn, randomUser(), slotId);
+                }
+            });
+        }
+        if (matches(filter, "refreshSlots.index")) {
+            resetBookings();
+            run("refreshSlots.index", 1, () -> index.availableSlots());
+        }
+        if (matches(filter, "refreshSlots.query")) {
+            run("refreshSlots.query", 1, () -> {
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    SlotAvailabilityIndex fresh = new SlotAvailabilityIndex();
+                    fresh.reload(conn);
+                    return fresh.size();
+                }
+            });
+        }
+        if (matches(filter, "nextSlot.index")) {
+            resetBookings();
+            run("nextSlot.index", 1, () -> index.nextAvailable(randomTime(), 15, null));
+        }
+        if (matches(filter, "nextSlot.scan")) {
+            resetBookings();
+            // What a client does without the search: fetch the full list and filter it
+            run("nextSlot.scan", 1, () -> {
+                LocalDateTime after = randomTime();
+                for (Slot slot : index.availableSlots()) {
+                    if (slot.isAvailable() && !slot.start().isBefore(after)
+                            && !slot.end().isBefore(slot.start().plusMinutes(15))) {
+                        return slot;
+                    }
+                }
+                return null;
+            });
+        }
+        if (matches(filter, "refreshAppointments.page")) {
+            run("refreshAppointments.page", 1, () -> {
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    return BookingService.appointmentsAfter(conn, null, 200);
+                }
+            });
+        }
+        if (matches(filter, "appointment.construct")) {
+            run("appointment.construct", 1, () ->
+                new Appointment(ThreadLocalRandom.current().nextInt(), 7, "2030-01-01", "09:00:00", "Booked"));
+        }
+        if (matches(filter, "login")) {
+            run("login", THREADS, () -> CredentialService.login("bench-user-" + randomUser(), PASSWORD).join());
+        }
+        if (Metrics.ENABLED) System.out.println("metrics " + Metrics.summary());
+        DatabaseConnection.shutdown();
+    }
+
+    private static boolean matches(String filter, String name) {
+        return name.contains(filter);
+    }
+
+    private static int randomUser() {
+        return ThreadLocalRandom.current().nextInt(USERS);
+    }
+
+    private static void seed() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            SchemaMigrations.migrate(conn);
+
+            // Enough working days of 15 minute slots, 08:00-18:00, to reach the requested count
+            int perDay = 40;
+            LocalDate from = LocalDate.now().plusDays(1);
+            LocalDate to = from.plusDays((SLOTS + perDay - 1) / perDay - 1);
+            SlotGenerator.ScheduleRule rule = new SlotGenerator.ScheduleRule(null, from, to,
+                    LocalTime.of(8, 0), LocalTime.of(18, 0), Duration.ofMinutes(15))
+                .workingDays(EnumSet.allOf(DayOfWeek.class));
+            slotCount = (int) SlotGenerator.publish(conn, List.of(rule));
+
+            try (Statement stmt = conn.createStatement();
+                 java.sql.ResultSet rs = stmt.executeQuery("SELECT MIN(id) FROM slot")) {
+                rs.next();
+                firstSlotId = rs.getInt(1);
+            }
+
+            // One hash shared by every user keeps seeding fast; each login still does the full work
+            String hash = CredentialService.hashNow(PASSWORD, CredentialService.ITERATIONS);
+            conn.setAutoCommit(false);
+            try (PreparedStatement users = conn.prepareStatement(
+                     "INSERT INTO user (id, username, password) VALUES (?, ?, ?)")) {
+                for (int i = 0; i < USERS; i++) {
+                    users.setInt(1, i);
+                    users.setString(2, "bench-user-" + i);
+                    users.setString(3, hash);
+                    users.addBatch();
+                }
+                users.executeBatch();
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+            // Ids are reused across runs with new names
+            Session.invalidateAll();
+        }
+
+        index = new SlotAvailabilityIndex();
+        engine = new BookingEngine(index);
+    }
+
+    // The first APPOINTMENTS slots are booked, everything else is free again
+    // Somewhere within the published schedule
+    private static LocalDateTime randomTime() {
+        int days = Math.max(1, slotCount / 40);
+        return LocalDate.now().plusDays(1 + ThreadLocalRandom.current().nextInt(days)).atTime(LocalTime.of(8, 0))
+            .plusMinutes(ThreadLocalRandom.current().nextInt(600));
+    }
+
+    private static void resetBookings() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM appointment");
+            stmt.executeUpdate("UPDATE slot SET is_available = TRUE WHERE is_available = FALSE");
+            conn.setAutoCommit(false);
+            try (PreparedStatement book = conn.prepareStatement(
+                     "INSERT INTO appointment (user_id, slot_id) VALUES (?, ?)")) {
+                for (int i = 0; i < Math.min(APPOINTMENTS, slotCount); i++) {
+                    book.setInt(1, i % USERS);
+                    book.setInt(2, firstSlotId + i);
+                    book.addBatch();
+                }
+                book.executeBatch();
+            }
+            stmt.executeUpdate("UPDATE slot SET is_available = FALSE WHERE id < " + (firstSlotId + APPOINTMENTS));
+            conn.commit();
+            conn.setAutoCommit(true);
+            index.reload(conn);
+        }
+    }
+
+    private static void run(String name, int threads, Op op) throws Exception {
+        for (int i = 0; i < WARMUPS; i++) {
+            iteration(threads, op);
+        }
+        double[] scores = new double[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            scores[i] = iteration(threads, op);
+        }
+
+        double mean = 0;
+        for (double score : scores) mean += score;
+        mean /= scores.length;
+        double variance = 0;
+        for (double score : scores) variance += (score - mean) * (score - mean);
+        double stdev = scores.length > 1 ? Math.sqrt(variance / (scores.length - 1)) : 0;
+        System.out.printf("%-40s %7d %4d %14.1f %12s %10s%n", name, threads, ITERATIONS, mean,
+            String.format("+- %.1f", stdev), "ops/s");
+    }
+
+    // Runs op on the given number of threads for one iteration; returns operations per second
+    private static double iteration(int threads, Op op) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder ops = new LongAdder();
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(Thread.ofPlatform().start(() -> {
+                int local = 0;
+                try {
+                    while (running.get()) {
+                        Object result = op.run();
+                        local += result == null ? 0 : result.hashCode();
+                        ops.increment();
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+                sink += local;
+            }));
+        }
+        long began = System.nanoTime();
+        Thread.sleep(SECONDS * 1_000);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - began;
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Benchmark operation failed", failures.get(0));
+        }
+        return ops.sum() / (elapsed / 1e9);
+    }
+}
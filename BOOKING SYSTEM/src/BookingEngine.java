@@ -0,0 +1,577 @@
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Single place where slots and appointments get claimed. A claim first wins an
+// in-process CAS on the slot id, so concurrent clicks on a hot slot are turned
+// away without touching MySQL; the winner then flips the row with a conditional
+// UPDATE, which is what protects against other processes. A claim that matches
+// no row has written nothing, so losing the race needs no undo work. Before any
+// write the booking's interval is reserved for the user in an IntervalIndex, which
+// turns away bookings that overlap one the user already holds; the write transaction
+// then locks the user's rows in that window and checks them, which covers bookings
+// made by other processes. A cancelled slot goes straight to the next user on its
+// Waitlist within the same transaction.
+public class BookingEngine {
+
+    // ROLLED_BACK: the slot was free but another slot of the same batch was lost
+    // CONFLICT: the user already holds a booking overlapping this one
+    public enum Outcome { BOOKED, LOST_RACE, ROLLED_BACK, CONFLICT }
+
+    private static final int NONE = -1;
+
+    private final SlotAvailabilityIndex index;
+    // What each user holds: slot ids by slot time, appointments ids by date_time + duration
+    private final IntervalIndex slotBookings = new IntervalIndex(
+        "SELECT a.user_id, s.id, s.start_time, s.end_time FROM appointment a JOIN slot s ON a.slot_id = s.id",
+        rs -> new long[] { rs.getInt(1), rs.getInt(2), epochSecond(rs.getTimestamp(3)), epochSecond(rs.getTimestamp(4)) },
+        (conn, userId, start, end) -> {
+            PreparedStatement stmt = conn.prepareStatement(
+                "SELECT a.user_id, s.id, s.start_time, s.end_time FROM appointment a JOIN slot s ON a.slot_id = s.id " +
+                "WHERE a.user_id = ? AND s.start_time < ? AND s.end_time > ? FOR UPDATE");
+            stmt.setInt(1, userId);
+            stmt.setTimestamp(2, timestamp(end));
+            stmt.setTimestamp(3, timestamp(start));
+            return stmt;
+        });
+    // The window lookup bounds date_time from above only; a row's end needs its duration
+    private final IntervalIndex appointmentBookings = new IntervalIndex(
+        "SELECT booked_by, id, date_time, duration_minutes FROM appointments WHERE booked_by IS NOT NULL",
+        rs -> {
+            long start = epochSecond(rs.getTimestamp(3));
+            return new long[] { rs.getInt(1), rs.getInt(2), start, start + rs.getInt(4) * 60L };
+        },
+        (conn, userId, start, end) -> {
+            PreparedStatement stmt = conn.prepareStatement(
+                "SELECT booked_by, id, date_time, duration_minutes FROM appointments " +
+                "WHERE booked_by = ? AND date_time < ? FOR UPDATE");
+            stmt.setInt(1, userId);
+            stmt.setTimestamp(2, timestamp(end));
+            return stmt;
+        });
+    private final Waitlist waitlist = new Waitlist();
+    private final Set<Integer> claimingSlots = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> claimingAppointments = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder booked = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder lostInProcess = new LongAdder();
+    private final LongAdder lostInDatabase = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder handedOff = new LongAdder();
+
+    // index may be null when the caller keeps no resident slot state
+    public BookingEngine(SlotAvailabilityIndex index) {
+        this.index = index;
+    }
+
+    // Bulk loads of the interval indexes, done at startup so the first booking does not pay for them
+    public void loadSlotBookings(Connection conn) throws SQLException {
+        slotBookings.ensureLoaded(conn);
+    }
+
+    public void loadAppointmentBookings(Connection conn) throws SQLException {
+        appointmentBookings.ensureLoaded(conn);
+    }
+
+    private static long epochSecond(Timestamp time) {
+        return time.toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static Timestamp timestamp(long epochSecond) {
+        return Timestamp.valueOf(LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC));
+    }
+
+    // Books a row of the slot table for a user (AppointmentSystem schema)
+    public Outcome claimSlot(Connection conn, int userId, int slotId) throws SQLException {
+        if (index != null && index.isReady() && index.isKnownClosed(slotId)) {
+            lostInProcess.increment();
+            return Outcome.LOST_RACE;
+        }
+        if (!claimingSlots.add(slotId)) {
+            lostInProcess.increment();
+            return Outcome.LOST_RACE;
+        }
+        boolean reserved = false;
+        Outcome outcome = Outcome.LOST_RACE;
+        try {
+            slotBookings.ensureLoaded(conn);
+            long[] times = slotTimes(conn, List.of(slotId)).get(slotId);
+            if (times != null) {
+                if (slotBookings.reserve(conn, userId, slotId, times[0], times[1]) != NONE) {
+                    conflicts.increment();
+                    return Outcome.CONFLICT;
+                }
+                reserved = true;
+            }
+            outcome = writeSlotClaim(conn, userId, slotId, times);
+            return outcome;
+        } finally {
+            if (reserved) {
+                if (outcome == Outcome.BOOKED) slotBookings.confirm(userId, slotId);
+                else slotBookings.remove(userId, slotId);
+            }
+            claimingSlots.remove(slotId);
+        }
+    }
+
+    // times null: the slot is not in the table, and the conditional UPDATE will say so
+    private Outcome writeSlotClaim(Connection conn, int userId, int slotId, long[] times) throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement updateSlot = conn.prepareStatement(
+                 "UPDATE slot SET is_available = FALSE WHERE id = ? AND is_available = TRUE");
+             PreparedStatement insertAppt = conn.prepareStatement(
+                 "INSERT INTO appointment (user_id, slot_id) VALUES (?, ?)")) {
+
+            if (times != null && slotBookings.verify(conn, userId, slotId, times[0], times[1]) != NONE) {
+                conn.rollback();
+                conflicts.increment();
+                return Outcome.CONFLICT;
+            }
+            updateSlot.setInt(1, slotId);
+            if (updateSlot.executeUpdate() == 0) {
+                // Nothing was written, the commit just ends the empty transaction
+                conn.commit();
+                lostInDatabase.increment();
+                return Outcome.LOST_RACE;
+            }
+
+            insertAppt.setInt(1, userId);
+            insertAppt.setInt(2, slotId);
+            insertAppt.executeUpdate();
+            conn.commit();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // Another booking already references the slot
+            conn.rollback();
+            lostInDatabase.increment();
+            return Outcome.LOST_RACE;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        if (index != null) {
+            index.markBooked(slotId);
+        }
+        booked.increment();
+        return Outcome.BOOKED;
+    }
+
+    // Books a series of slots for one user all-or-nothing. Both statements are sent
+    // as JDBC batches inside one transaction, so with rewriteBatchedStatements the
+    // whole series costs a couple of round trips instead of two per slot.
+    public Map<Integer, Outcome> claimSlots(Connection conn, int userId, List<Integer> slotIds) throws SQLException {
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(slotIds));
+        Map<Integer, Outcome> outcomes = new LinkedHashMap<>();
+        List<Integer> claimed = new ArrayList<>();
+        List<Integer> reserved = new ArrayList<>();
+        boolean committed = false;
+        try {
+            for (int slotId : ids) {
+                boolean closed = index != null && index.isReady() && index.isKnownClosed(slotId);
+                if (closed || !claimingSlots.add(slotId)) {
+                    lostInProcess.increment();
+                    return failed(ids, List.of(slotId), Outcome.LOST_RACE);
+                }
+                claimed.add(slotId);
+            }
+
+            // Slots of the series are checked against each other as well as against earlier bookings
+            slotBookings.ensureLoaded(conn);
+            Map<Integer, long[]> times = slotTimes(conn, ids);
+            for (int slotId : ids) {
+                long[] slot = times.get(slotId);
+                if (slot == null) continue;
+                if (slotBookings.reserve(conn, userId, slotId, slot[0], slot[1]) != NONE) {
+                    conflicts.increment();
+                    return failed(ids, List.of(slotId), Outcome.CONFLICT);
+                }
+                reserved.add(slotId);
+            }
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement updateSlot = conn.prepareStatement(
+                     "UPDATE slot SET is_available = FALSE WHERE id = ? AND is_available = TRUE");
+                 PreparedStatement insertAppt = conn.prepareStatement(
+                     "INSERT INTO appointment (user_id, slot_id) VALUES (?, ?)")) {
+
+                for (int slotId : reserved) {
+                    long[] slot = times.get(slotId);
+                    if (slotBookings.verify(conn, userId, slotId, slot[0], slot[1]) != NONE) {
+                        conn.rollback();
+                        conflicts.increment();
+                        return failed(ids, List.of(slotId), Outcome.CONFLICT);
+                    }
+                }
+                for (int slotId : ids) {
+                    updateSlot.setInt(1, slotId);
+                    updateSlot.addBatch();
+                }
+                List<Integer> lostIds = new ArrayList<>();
+                int[] counts;
+                try {
+                    counts = updateSlot.executeBatch();
+                } catch (BatchUpdateException e) {
+                    counts = e.getUpdateCounts();
+                    if (counts.length == 0) throw e;
+                }
+                for (int i = 0; i < ids.size(); i++) {
+                    if (i >= counts.length || counts[i] == 0 || counts[i] == Statement.EXECUTE_FAILED) {
+                        lostIds.add(ids.get(i));
+                    }
+                }
+                if (!lostIds.isEmpty()) {
+                    conn.rollback();
+                    lostInDatabase.add(lostIds.size());
+                    return failed(ids, lostIds, Outcome.LOST_RACE);
+                }
+
+                for (int slotId : ids) {
+                    insertAppt.setInt(1, userId);
+                    insertAppt.setInt(2, slotId);
+                    insertAppt.addBatch();
+                }
+                insertAppt.executeBatch();
+                conn.commit();
+                committed = true;
+            } catch (BatchUpdateException e) {
+                // Unique key on appointment.slot_id: someone booked a slot outside this engine
+                conn.rollback();
+                if (!(e.getCause() instanceof SQLIntegrityConstraintViolationException)
+                        && !"23000".equals(e.getSQLState())) {
+                    throw e;
+                }
+                lostInDatabase.increment();
+                return failed(ids, ids, Outcome.LOST_RACE);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+            for (int slotId : reserved) {
+                slotBookings.confirm(userId, slotId);
+            }
+            for (int slotId : ids) {
+                if (index != null) {
+                    index.markBooked(slotId);
+                }
+                outcomes.put(slotId, Outcome.BOOKED);
+            }
+            booked.add(ids.size());
+            return outcomes;
+        } finally {
+            if (!committed) {
+                for (int slotId : reserved) {
+                    slotBookings.remove(userId, slotId);
+                }
+            }
+            claimingSlots.removeAll(claimed);
+        }
+    }
+
+    private static Map<Integer, Outcome> failed(List<Integer> ids, List<Integer> failedIds, Outcome outcome) {
+        Map<Integer, Outcome> outcomes = new LinkedHashMap<>();
+        for (int slotId : ids) {
+            outcomes.put(slotId, failedIds.contains(slotId) ? outcome : Outcome.ROLLED_BACK);
+        }
+        return outcomes;
+    }
+
+    // Start and end of each slot in epoch seconds, from the resident index where it has them
+    private Map<Integer, long[]> slotTimes(Connection conn, List<Integer> slotIds) throws SQLException {
+        Map<Integer, long[]> times = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (int slotId : slotIds) {
+            long[] slot = index != null && index.isReady() ? index.times(slotId) : null;
+            if (slot != null) times.put(slotId, slot);
+            else missing.add(slotId);
+        }
+        if (missing.isEmpty()) return times;
+        StringBuilder sql = new StringBuilder("SELECT id, start_time, end_time FROM slot WHERE id IN (");
+        for (int i = 0; i < missing.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(sql.append(')').toString())) {
+            for (int i = 0; i < missing.size(); i++) {
+                stmt.setInt(i + 1, missing.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    times.put(rs.getInt(1), new long[] { epochSecond(rs.getTimestamp(2)), epochSecond(rs.getTimestamp(3)) });
+                }
+            }
+        }
+        return times;
+    }
+
+    // Books a row of the appointments table (LoginApp schema): the user's overlap check and
+    // one conditional UPDATE in a transaction
+    public Outcome claimAppointment(Connection conn, int appointmentId, int userId) throws SQLException {
+        if (!claimingAppointments.add(appointmentId)) {
+            lostInProcess.increment();
+            return Outcome.LOST_RACE;
+        }
+        long[] times = null;
+        boolean won = false;
+        try {
+            appointmentBookings.ensureLoaded(conn);
+            try (PreparedStatement find = conn.prepareStatement(
+                     "SELECT date_time, duration_minutes FROM appointments WHERE id = ?")) {
+                find.setInt(1, appointmentId);
+                try (ResultSet rs = find.executeQuery()) {
+                    if (rs.next()) {
+                        long start = epochSecond(rs.getTimestamp(1));
+                        long[] found = { start, start + rs.getInt(2) * 60L };
+                        if (appointmentBookings.reserve(conn, userId, appointmentId, found[0], found[1]) != NONE) {
+                            conflicts.increment();
+                            return Outcome.CONFLICT;
+                        }
+                        times = found;
+                    }
+                }
+            }
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE appointments SET is_available = FALSE, booked_by = ? WHERE id = ? AND is_available = TRUE")) {
+                if (times != null && appointmentBookings.verify(conn, userId, appointmentId, times[0], times[1]) != NONE) {
+                    conn.rollback();
+                    conflicts.increment();
+                    return Outcome.CONFLICT;
+                }
+                stmt.setInt(1, userId);
+                stmt.setInt(2, appointmentId);
+                if (stmt.executeUpdate() == 0) {
+                    conn.commit();
+                    lostInDatabase.increment();
+                    return Outcome.LOST_RACE;
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            won = true;
+            booked.increment();
+            return Outcome.BOOKED;
+        } finally {
+            if (times != null) {
+                if (won) appointmentBookings.confirm(userId, appointmentId);
+                else appointmentBookings.remove(userId, appointmentId);
+            }
+            claimingAppointments.remove(appointmentId);
+        }
+    }
+
+    // One appointment being cancelled, and what became of its slot
+    private static final class Cancellation {
+        final int appointmentId;
+        final int slotId;
+        final int holder;
+        final long start;
+        final long end;
+        int nextHolder = NONE;
+        final List<Integer> skipped = new ArrayList<>();
+
+        Cancellation(ResultSet rs) throws SQLException {
+            appointmentId = rs.getInt("id");
+            slotId = rs.getInt("slot_id");
+            holder = rs.getInt("user_id");
+            start = epochSecond(rs.getTimestamp("start_time"));
+            end = epochSecond(rs.getTimestamp("end_time"));
+        }
+    }
+
+    // Locks the appointment and its slot together, so a concurrent join or rebook waits for the outcome
+    private static final String CANCEL_SQL =
+        "SELECT a.id, a.slot_id, a.user_id, s.start_time, s.end_time " +
+        "FROM appointment a JOIN slot s ON s.id = a.slot_id ";
+
+    // Cancels an appointment (AppointmentSystem schema) in one transaction. The slot goes to
+    // the first waiter it does not overlap for, or is reopened when nobody is waiting.
+    // userId null: any owner (admin). Returns false when there is no such appointment for the user.
+    public boolean cancel(Connection conn, int appointmentId, Integer userId) throws SQLException {
+        return cancelAll(conn, userId == null
+            ? CANCEL_SQL + "WHERE a.id = ? FOR UPDATE"
+            : CANCEL_SQL + "WHERE a.id = ? AND a.user_id = ? FOR UPDATE", stmt -> {
+                stmt.setInt(1, appointmentId);
+                if (userId != null) stmt.setInt(2, userId);
+            }, false) == 1;
+    }
+
+    // Cancels every appointment on slots starting that day (admin) in one transaction, each
+    // statement sent as one batch. Slots are handed to waiters or reopened as by cancel.
+    public int cancelDay(Connection conn, LocalDate day) throws SQLException {
+        return cancelAll(conn, CANCEL_SQL + "WHERE s.start_time >= ? AND s.start_time < ? ORDER BY s.id FOR UPDATE", stmt -> {
+            stmt.setTimestamp(1, Timestamp.valueOf(day.atStartOfDay()));
+            stmt.setTimestamp(2, Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+        }, true);
+    }
+
+    private interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    private int cancelAll(Connection conn, String findSql, Binder binder, boolean bulk) throws SQLException {
+        List<Cancellation> cancellations = new ArrayList<>();
+        slotBookings.ensureLoaded(conn);
+        conn.setAutoCommit(false);
+        try {
+            try (PreparedStatement find = conn.prepareStatement(findSql)) {
+                binder.bind(find);
+                try (ResultSet rs = find.executeQuery()) {
+                    while (rs.next()) {
+                        cancellations.add(new Cancellation(rs));
+                    }
+                }
+            }
+            if (!cancellations.isEmpty()) {
+                release(conn, cancellations, bulk ? slotsWithWaiters(conn, cancellations) : null);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            unwind(cancellations);
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        for (Cancellation c : cancellations) {
+            slotBookings.remove(c.holder, c.slotId);
+            waitlist.settled(c.slotId, c.nextHolder, c.skipped);
+            if (c.nextHolder == NONE) {
+                if (index != null) {
+                    index.markReleased(c.slotId);
+                }
+            } else {
+                slotBookings.confirm(c.nextHolder, c.slotId);
+                handedOff.increment();
+            }
+        }
+        cancelled.add(cancellations.size());
+        return cancellations.size();
+    }
+
+    // Deletes the appointments, then gives each slot to its next waiter or reopens it.
+    // Runs in the caller's transaction with the rows locked. withWaiters null: ask the
+    // waitlist about every slot, otherwise only about those.
+    private void release(Connection conn, List<Cancellation> cancellations, Set<Integer> withWaiters) throws SQLException {
+        try (PreparedStatement delete = conn.prepareStatement("DELETE FROM appointment WHERE id = ?");
+             PreparedStatement reopen = conn.prepareStatement("UPDATE slot SET is_available = TRUE WHERE id = ?");
+             PreparedStatement handOff = conn.prepareStatement("INSERT INTO appointment (user_id, slot_id) VALUES (?, ?)")) {
+            Map<Integer, Integer> deleted = new LinkedHashMap<>();
+            for (Cancellation c : cancellations) {
+                delete.setInt(1, c.appointmentId);
+                delete.addBatch();
+                deleted.put(c.appointmentId, c.slotId);
+            }
+            delete.executeBatch();
+            ChangeTracking.recordDeletes(conn, "appointment", deleted);
+
+            for (Cancellation c : cancellations) {
+                if (withWaiters == null || withWaiters.contains(c.slotId)) {
+                    c.nextHolder = waitlist.takeNext(conn, c.slotId,
+                        user -> reserveForWaiter(conn, user, c), c.skipped);
+                }
+                if (c.nextHolder == NONE) {
+                    reopen.setInt(1, c.slotId);
+                    reopen.addBatch();
+                } else {
+                    handOff.setInt(1, c.nextHolder);
+                    handOff.setInt(2, c.slotId);
+                    handOff.addBatch();
+                }
+            }
+            reopen.executeBatch();
+            handOff.executeBatch();
+        }
+    }
+
+    // A waiter takes the slot only if it overlaps nothing they hold, here or in the database
+    private boolean reserveForWaiter(Connection conn, int userId, Cancellation c) throws SQLException {
+        if (slotBookings.reserve(userId, c.slotId, c.start, c.end) != NONE) return false;
+        if (slotBookings.verify(conn, userId, c.slotId, c.start, c.end) == NONE) return true;
+        slotBookings.remove(userId, c.slotId);
+        return false;
+    }
+
+    // Slots among those being released that anyone is waiting for, in one query
+    private static Set<Integer> slotsWithWaiters(Connection conn, List<Cancellation> cancellations) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT DISTINCT slot_id FROM slot_waitlist WHERE slot_id IN (");
+        for (int i = 0; i < cancellations.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        Set<Integer> slots = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql.append(')').toString())) {
+            for (int i = 0; i < cancellations.size(); i++) {
+                stmt.setInt(i + 1, cancellations.get(i).slotId);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    slots.add(rs.getInt(1));
+                }
+            }
+        }
+        return slots;
+    }
+
+    // After a rollback: drop reservations made for waiters; their rows are back in the table
+    private void unwind(List<Cancellation> cancellations) {
+        for (Cancellation c : cancellations) {
+            if (c.nextHolder != NONE) {
+                slotBookings.remove(c.nextHolder, c.slotId);
+            }
+        }
+    }
+
+    // Cancels a booking of the appointments table (LoginApp schema). One conditional UPDATE
+    // frees the row, and only while it is still this user's booking, so a late cancel can
+    // never release a row someone else has booked since.
+    public boolean cancelAppointment(Connection conn, int appointmentId, int userId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "UPDATE appointments SET is_available = TRUE, booked_by = NULL " +
+                 "WHERE id = ? AND booked_by = ? AND is_available = FALSE")) {
+            stmt.setInt(1, appointmentId);
+            stmt.setInt(2, userId);
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
+        }
+        appointmentBookings.remove(userId, appointmentId);
+        cancelled.increment();
+        return true;
+    }
+
+    public Waitlist waitlist() {
+        return waitlist;
+    }
+
+    public String stats() {
+        return String.format("booked=%d cancelled=%d handedOff=%d lostInProcess=%d lostInDatabase=%d conflicts=%d",
+            booked.sum(), cancelled.sum(), handedOff.sum(), lostInProcess.sum(), lostInDatabase.sum(), conflicts.sum());
+    }
+}
@@ -0,0 +1,454 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// HTTP front end for BookingService on the JDK's built-in server, one virtual thread
+// per request, so many thin clients share one connection pool, slot index and cache.
+// Requests are form encoded, responses are JSON; sign in first and send the returned
+// token as "Authorization: Bearer <token>" on every other route, the slot listings
+// included. Tokens expire after server.tokenMinutes.
+//
+//   POST /login                username, password        -> token, userId, admin, expiresIn (seconds)
+//   POST /logout                                         (revokes the caller's token)
+//   GET  /slots                                          -> available slots
+//   GET  /slots/next           after, before, minutes, provider, limit -> earliest open slots
+//   POST /book                 slotId (repeat for a series, all or nothing)
+//   POST /cancel               appointmentId             (own appointments; admins any)
+//   POST /waitlist             slotId                    -> place in line for a taken slot
+//   POST /waitlist/leave       slotId
+//   GET  /appointments                                   -> the caller's appointments
+//   GET  /admin/appointments   afterTime, afterId, limit -> one page of all appointments
+//   POST /admin/cancel-day     date (YYYY-MM-DD)         -> number of appointments cancelled
+//
+// -Dserver.port=8080 -Dserver.tokenMinutes=60
+public class BookingServer {
+
+    private static final int PORT = Integer.getInteger("server.port", 8080);
+    private static final int MAX_PAGE = 500;
+    private static final int TOKEN_BYTES = 32;
+    private static final long TOKEN_MILLIS = TimeUnit.MINUTES.toMillis(Long.getLong("server.tokenMinutes", 60));
+    private static final long SWEEP_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final class Token {
+        final CredentialService.Account account;
+        final long expiresAt;
+
+        Token(CredentialService.Account account, long expiresAt) {
+            this.account = account;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean expired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    private final BookingService service;
+    private final Map<String, Token> tokens = new ConcurrentHashMap<>();
+    // Expired tokens are dropped when used, and swept at most once a minute on sign-in
+    private final AtomicLong nextSweep = new AtomicLong();
+    private final SecureRandom random = new SecureRandom();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // Expected failures carry their status code; anything else is a 500
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+        final String body;
+
+        HttpError(int status, String message) {
+            this(status, message, error(message));
+        }
+
+        HttpError(int status, String message, String body) {
+            super(message);
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private interface Handler {
+        String handle(HttpExchange exchange) throws IOException, SQLException;
+    }
+
+    public BookingServer(BookingService service) {
+        this.service = service;
+    }
+
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        route("/login", "POST", this::login);
+        route("/logout", "POST", this::logout);
+        route("/slots", "GET", this::slots);
+        route("/slots/next", "GET", this::nextSlots);
+        route("/book", "POST", this::book);
+        route("/cancel", "POST", this::cancel);
+        route("/waitlist", "POST", this::joinWaitlist);
+        route("/waitlist/leave", "POST", this::leaveWaitlist);
+        route("/appointments", "GET", this::appointments);
+        route("/admin/appointments", "GET", this::adminAppointments);
+        route("/admin/cancel-day", "POST", this::cancelDay);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void route(String path, String method, Handler handler) {
+        server.createContext(path, exchange -> {
+            int status = 200;
+            String body;
+            try {
+                if (!exchange.getRequestURI().getPath().equals(path)) {
+                    throw new HttpError(404, "Not found");
+                }
+                if (!method.equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    throw new HttpError(405, "Use " + method);
+                }
+                body = handler.handle(exchange);
+            } catch (HttpError e) {
+                status = e.status;
+                body = e.body;
+            } catch (CredentialService.Saturated e) {
+                status = 503;
+                body = error(e.getMessage());
+            } catch (SecurityException e) {
+                // BookingService's own authorisation checks
+                status = 403;
+                body = error(e.getMessage());
+            } catch (SQLException | IOException | RuntimeException e) {
+                System.err.println(exchange.getRequestMethod() + " " + path + " failed: " + e.getMessage());
+                status = 500;
+                body = error("Internal error");
+            }
+            send(exchange, status, body);
+        });
+    }
+
+    private String login(HttpExchange exchange) throws IOException {
+        Map<String, List<String>> form = form(exchange);
+        CredentialService.Account account;
+        try {
+            account = service.login(required(form, "username"), required(form, "password")).join();
+        } catch (CompletionException e) {
+            if (AsyncDb.unwrap(e) instanceof CredentialService.Saturated) {
+                throw (CredentialService.Saturated) AsyncDb.unwrap(e);
+            }
+            throw e;
+        }
+        if (account == null) {
+            throw new HttpError(401, "Invalid credentials");
+        }
+        long now = System.currentTimeMillis();
+        long sweepAt = nextSweep.get();
+        if (now >= sweepAt && nextSweep.compareAndSet(sweepAt, now + SWEEP_MILLIS)) {
+            tokens.values().removeIf(token -> token.expired(now));
+        }
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tokens.put(token, new Token(account, now + TOKEN_MILLIS));
+        return "{\"token\":" + quote(token) + ",\"userId\":" + account.id + ",\"admin\":" + account.isAdmin +
+            ",\"expiresIn\":" + TOKEN_MILLIS / 1000 + "}";
+    }
+
+    private String logout(HttpExchange exchange) {
+        String token = bearer(exchange);
+        if (token == null || tokens.remove(token) == null) {
+            throw new HttpError(401, "Sign in first");
+        }
+        return "{\"loggedOut\":true}";
+    }
+
+    private String slots(HttpExchange exchange) {
+        authenticate(exchange);
+        service.whenReady().join();
+        return slotsJson(service.availableSlots());
+    }
+
+    // Earliest open slots: after (ISO date-time, default now), optional before, minutes
+    // (shortest acceptable length), provider and limit (default 1)
+    private String nextSlots(HttpExchange exchange) {
+        authenticate(exchange);
+        Map<String, List<String>> query = parse(exchange.getRequestURI().getRawQuery());
+        LocalDateTime after = query.containsKey("after") ? parseTime("after", query.get("after").get(0)) : LocalDateTime.now();
+        LocalDateTime before = query.containsKey("before") ? parseTime("before", query.get("before").get(0)) : null;
+        int minutes = query.containsKey("minutes") ? parseInt("minutes", query.get("minutes").get(0)) : 0;
+        Integer provider = query.containsKey("provider") ? parseInt("provider", query.get("provider").get(0)) : null;
+        int limit = Math.min(MAX_PAGE, query.containsKey("limit") ? parseInt("limit", query.get("limit").get(0)) : 1);
+        service.whenReady().join();
+        return slotsJson(service.firstAvailable(after, before, limit, minutes, provider));
+    }
+
+    private static String slotsJson(List<Slot> slots) {
+        StringBuilder json = new StringBuilder("[");
+        for (Slot slot : slots) {
+            if (json.length() > 1) json.append(',');
+            json.append("{\"id\":").append(slot.getId())
+                .append(",\"start\":").append(quote(slot.getStartTime()))
+                .append(",\"end\":").append(quote(slot.getEndTime()))
+                .append(",\"available\":").append(slot.isAvailable()).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private String book(HttpExchange exchange) throws IOException, SQLException {
+        CredentialService.Account account = authenticate(exchange);
+        List<String> values = form(exchange).getOrDefault("slotId", List.of());
+        if (values.isEmpty()) {
+            throw new HttpError(400, "Missing slotId");
+        }
+        List<Integer> slotIds = new ArrayList<>();
+        for (String value : values) {
+            slotIds.add(parseInt("slotId", value));
+        }
+        Map<Integer, BookingEngine.Outcome> outcomes;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            outcomes = slotIds.size() == 1
+                ? Map.of(slotIds.get(0), service.book(conn, account.id, slotIds.get(0)))
+                : service.bookSeries(conn, account.id, slotIds);
+        }
+        StringBuilder json = new StringBuilder("{");
+        outcomes.forEach((slotId, outcome) -> {
+            if (json.length() > 1) json.append(',');
+            json.append(quote(String.valueOf(slotId))).append(':').append(quote(outcome.name()));
+        });
+        json.append('}');
+        if (outcomes.containsValue(BookingEngine.Outcome.LOST_RACE)) {
+            throw new HttpError(409, "Slot taken", "{\"error\":\"Slot taken\",\"outcomes\":" + json + "}");
+        }
+        if (outcomes.containsValue(BookingEngine.Outcome.CONFLICT)) {
+            throw new HttpError(409, "Time conflict", "{\"error\":\"Time conflict\",\"outcomes\":" + json + "}");
+        }
+        return json.toString();
+    }
+
+    private String cancel(HttpExchange exchange) throws IOException, SQLException {
+        CredentialService.Account account = authenticate(exchange);
+        int appointmentId = parseInt("appointmentId", required(form(exchange), "appointmentId"));
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (!service.cancel(conn, account, appointmentId)) {
+                throw new HttpError(404, "No such appointment");
+            }
+        }
+        return "{\"cancelled\":" + appointmentId + "}";
+    }
+
+    // The slot is booked for the caller when a cancellation reaches them; /appointments shows it
+    private String joinWaitlist(HttpExchange exchange) throws IOException, SQLException {
+        CredentialService.Account account = authenticate(exchange);
+        int slotId = parseInt("slotId", required(form(exchange), "slotId"));
+        int position;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            position = service.joinWaitlist(conn, account.id, slotId);
+        }
+        if (position == 0) {
+            throw new HttpError(409, "Slot is open or already yours");
+        }
+        return "{\"slotId\":" + slotId + ",\"position\":" + position + "}";
+    }
+
+    private String leaveWaitlist(HttpExchange exchange) throws IOException, SQLException {
+        CredentialService.Account account = authenticate(exchange);
+        int slotId = parseInt("slotId", required(form(exchange), "slotId"));
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (!service.leaveWaitlist(conn, account.id, slotId)) {
+                throw new HttpError(404, "Not on the waitlist");
+            }
+        }
+        return "{\"left\":" + slotId + "}";
+    }
+
+    private String appointments(HttpExchange exchange) throws SQLException {
+        CredentialService.Account account = authenticate(exchange);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return toJson(service.appointmentsOf(conn, account.id));
+        }
+    }
+
+    private String adminAppointments(HttpExchange exchange) throws SQLException {
+        if (!authenticate(exchange).isAdmin) {
+            throw new HttpError(403, "Admins only");
+        }
+        Map<String, List<String>> query = parse(exchange.getRequestURI().getRawQuery());
+        int limit = Math.min(MAX_PAGE, query.containsKey("limit") ? parseInt("limit", query.get("limit").get(0)) : 200);
+        AppointmentView after = null;
+        if (query.containsKey("afterTime")) {
+            // Only the keyset columns of the previous page's last row are needed
+            LocalDateTime time = parseTime("afterTime", query.get("afterTime").get(0));
+            after = new AppointmentView(parseInt("afterId", required(query, "afterId")), 0, null, time, time, time);
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return toJson(BookingService.appointmentsAfter(conn, after, limit));
+        }
+    }
+
+    private String cancelDay(HttpExchange exchange) throws IOException, SQLException {
+        CredentialService.Account account = authenticate(exchange);
+        String date = required(form(exchange), "date");
+        LocalDate day;
+        try {
+            day = LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new HttpError(400, "date must be YYYY-MM-DD");
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return "{\"date\":" + quote(date) + ",\"cancelled\":" + service.cancelDay(conn, account, day) + "}";
+        }
+    }
+
+    private CredentialService.Account authenticate(HttpExchange exchange) {
+        String key = bearer(exchange);
+        Token token = key == null ? null : tokens.get(key);
+        if (token != null && token.expired(System.currentTimeMillis())) {
+            tokens.remove(key, token);
+            token = null;
+        }
+        if (token == null) {
+            throw new HttpError(401, "Sign in first");
+        }
+        return token.account;
+    }
+
+    private static String bearer(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        return header != null && header.startsWith("Bearer ") ? header.substring("Bearer ".length()).trim() : null;
+    }
+
+    private static String toJson(List<AppointmentView> appointments) {
+        StringBuilder json = new StringBuilder("[");
+        for (AppointmentView row : appointments) {
+            if (json.length() > 1) json.append(',');
+            json.append("{\"id\":").append(row.getId())
+                .append(",\"userId\":").append(row.getUserId())
+                .append(",\"username\":").append(quote(row.getUsername()))
+                .append(",\"start\":").append(quote(row.startTime.toString()))
+                .append(",\"end\":").append(quote(row.endTime.toString()))
+                .append(",\"createdAt\":").append(quote(row.getCreatedAt())).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static Map<String, List<String>> form(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Map<String, List<String>> parse(String encoded) {
+        Map<String, List<String>> params = new HashMap<>();
+        if (encoded == null || encoded.isEmpty()) return params;
+        for (String pair : encoded.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+        }
+        return params;
+    }
+
+    private static String required(Map<String, List<String>> params, String name) {
+        List<String> values = params.get(name);
+        if (values == null || values.get(0).isEmpty()) {
+            throw new HttpError(400, "Missing " + name);
+        }
+        return values.get(0);
+    }
+
+    private static int parseInt(String name, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, name + " must be a number");
+        }
+    }
+
+    private static LocalDateTime parseTime(String name, String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new HttpError(400, name + " must be an ISO date-time");
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    private static String quote(String value) {
+        if (value == null) return "null";
+        StringBuilder out = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        BookingService service = new BookingService();
+        service.start().exceptionally(ex -> {
+            System.err.println("Failed to load slot index: " + ex.getMessage());
+            return null;
+        });
+        BookingServer server = new BookingServer(service);
+        server.start(PORT);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            service.stop();
+            DatabaseConnection.shutdown();
+        }));
+        System.out.println("Booking server listening on port " + server.port());
+    }
+}
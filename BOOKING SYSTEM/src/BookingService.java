@@ -0,0 +1,232 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Booking rules with no UI attached (AppointmentSystem schema): slot listing, booking,
+// cancellation, sign-in and the admin listing. The desktop client and BookingServer
+// both go through an instance of this, so one resident slot index and one booking
+// engine serve every client of the process.
+public class BookingService {
+    private final SlotAvailabilityIndex slotIndex = new SlotAvailabilityIndex();
+    private final BookingEngine bookingEngine = new BookingEngine(slotIndex);
+
+    // Brings the schema up to date and loads what users hold, then loads the slot index in the background
+    public CompletableFuture<Void> start() {
+        initializeDatabase();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            bookingEngine.loadSlotBookings(conn);
+        } catch (SQLException e) {
+            // Bookings load again on first use
+            System.err.println("Error loading bookings: " + e.getMessage());
+        }
+        return slotIndex.start();
+    }
+
+    public void stop() {
+        slotIndex.stop();
+        bookingEngine.waitlist().stop();
+    }
+
+    public CompletableFuture<Void> whenReady() {
+        return slotIndex.whenReady();
+    }
+
+    private static void initializeDatabase() {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            
+            // Create or upgrade tables
+            SchemaMigrations.migrate(conn);
+            ChangeTracking.pruneTombstones(conn);
+            
+            // Insert admin user if not exists
+            stmt.executeUpdate("INSERT IGNORE INTO user (username, password, is_admin) VALUES " +
+                             "('admin', 'admin123', TRUE)");
+            
+            // Publish a sample schedule if empty
+            boolean empty;
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM slot")) {
+                rs.next();
+                empty = rs.getInt(1) == 0;
+            }
+            if (empty) {
+                SlotGenerator.publish(conn, List.of(SlotGenerator.demoSchedule()));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public CompletableFuture<CredentialService.Account> login(String username, String password) {
+        return CredentialService.login(username, password);
+    }
+
+    public CompletableFuture<Boolean> register(String username, String password) {
+        return CredentialService.register(username, password);
+    }
+
+    // Open slots, and slots that were never booked; served from the index once it is ready
+    public List<Slot> availableSlots() {
+        return slotIndex.availableSlots();
+    }
+
+    // Listed slots starting in [from, to)
+    public List<Slot> availableSlots(LocalDateTime from, LocalDateTime to) {
+        return slotIndex.availableSlots(from, to);
+    }
+
+    // Earliest open slot at or after the time lasting at least minMinutes; providerId null for any
+    public Slot nextAvailable(LocalDateTime after, int minMinutes, Integer providerId) {
+        return slotIndex.nextAvailable(after, minMinutes, providerId);
+    }
+
+    // Up to limit open slots starting in [from, to), earliest first; to null for no end
+    public List<Slot> firstAvailable(LocalDateTime from, LocalDateTime to, int limit, int minMinutes, Integer providerId) {
+        return slotIndex.firstAvailable(from, to, limit, minMinutes, providerId);
+    }
+
+    public BookingEngine.Outcome book(Connection conn, int userId, int slotId) throws SQLException {
+        return bookingEngine.claimSlot(conn, userId, slotId);
+    }
+
+    // All-or-nothing booking of several slots
+    public Map<Integer, BookingEngine.Outcome> bookSeries(Connection conn, int userId, List<Integer> slotIds) throws SQLException {
+        return bookingEngine.claimSlots(conn, userId, slotIds);
+    }
+
+    // Users may cancel their own appointments, admins any appointment
+    public boolean cancel(Connection conn, CredentialService.Account actor, int appointmentId) throws SQLException {
+        return bookingEngine.cancel(conn, appointmentId, actor.isAdmin ? null : actor.id);
+    }
+
+    // Queues the user for a taken slot; returns their place in line, 0 when the slot is
+    // open again (book it) or already theirs
+    public int joinWaitlist(Connection conn, int userId, int slotId) throws SQLException {
+        return bookingEngine.waitlist().join(conn, userId, slotId);
+    }
+
+    public boolean leaveWaitlist(Connection conn, int userId, int slotId) throws SQLException {
+        return bookingEngine.waitlist().leave(conn, userId, slotId);
+    }
+
+    // Completes with true once a cancellation hands the slot to the user
+    public CompletableFuture<Boolean> whenHandedOff(Connection conn, int userId, int slotId) throws SQLException {
+        return bookingEngine.waitlist().whenHandedOff(conn, userId, slotId);
+    }
+
+    // Admin only: cancels every appointment on the day in one transaction; returns how many.
+    // Throws SecurityException for anyone else, whichever client is asking.
+    public int cancelDay(Connection conn, CredentialService.Account actor, LocalDate day) throws SQLException {
+        if (!actor.isAdmin) {
+            throw new SecurityException("Only admins can cancel a whole day");
+        }
+        return bookingEngine.cancelDay(conn, day);
+    }
+
+    public List<AppointmentView> appointmentsOf(Connection conn, int userId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(APPOINTMENT_COLUMNS +
+                 "WHERE a.user_id = ? ORDER BY s.start_time, a.id")) {
+            stmt.setInt(1, userId);
+            return readAppointments(conn, stmt);
+        }
+    }
+
+    public String stats() {
+        return bookingEngine.stats();
+    }
+
+    private static final Metrics.Timer APPOINTMENTS_EXECUTE = Metrics.timer("appointments.page.execute");
+    private static final Metrics.Timer APPOINTMENTS_MAP = Metrics.timer("appointments.page.map");
+
+    // Usernames come from the Session cache rather than a join on user
+    private static final String APPOINTMENT_COLUMNS =
+        "SELECT a.id, a.user_id, s.start_time, s.end_time, a.created_at " +
+        "FROM appointment a " +
+        "JOIN slot s ON a.slot_id = s.id ";
+
+    // Seek pagination on (start_time, id): each page starts right after the last row seen
+    static List<AppointmentView> appointmentsAfter(Connection conn, AppointmentView row, int limit) throws SQLException {
+        if (row == null) {
+            try (PreparedStatement stmt = conn.prepareStatement(APPOINTMENT_COLUMNS +
+                     "ORDER BY s.start_time, a.id LIMIT ?")) {
+                stmt.setInt(1, limit);
+                return readAppointments(conn, stmt);
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(APPOINTMENT_COLUMNS +
+                 "WHERE s.start_time > ? OR (s.start_time = ? AND a.id > ?) " +
+                 "ORDER BY s.start_time, a.id LIMIT ?")) {
+            bindKey(stmt, row);
+            stmt.setInt(4, limit);
+            return readAppointments(conn, stmt);
+        }
+    }
+
+    static List<AppointmentView> appointmentsBefore(Connection conn, AppointmentView row, int limit) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(APPOINTMENT_COLUMNS +
+                 "WHERE s.start_time < ? OR (s.start_time = ? AND a.id < ?) " +
+                 "ORDER BY s.start_time DESC, a.id DESC LIMIT ?")) {
+            bindKey(stmt, row);
+            stmt.setInt(4, limit);
+            List<AppointmentView> rows = readAppointments(conn, stmt);
+            Collections.reverse(rows);
+            return rows;
+        }
+    }
+
+    // Appointments whose own row or slot changed since the given time, plus deletions
+    static ChangeTracking.ChangeSet<AppointmentView> appointmentChangesSince(Connection conn, Timestamp since) throws SQLException {
+        Timestamp asOf = ChangeTracking.now(conn);
+        List<AppointmentView> upserts;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "(" + APPOINTMENT_COLUMNS + "WHERE a.updated_at >= ?) UNION " +
+                 "(" + APPOINTMENT_COLUMNS + "WHERE s.updated_at >= ?)")) {
+            stmt.setTimestamp(1, since);
+            stmt.setTimestamp(2, since);
+            upserts = readAppointments(conn, stmt);
+        }
+        return new ChangeTracking.ChangeSet<>(upserts, ChangeTracking.deletedSince(conn, "appointment", since), asOf);
+    }
+
+    private static void bindKey(PreparedStatement stmt, AppointmentView row) throws SQLException {
+        Timestamp start = Timestamp.valueOf(row.startTime);
+        stmt.setTimestamp(1, start);
+        stmt.setTimestamp(2, start);
+        stmt.setInt(3, row.id);
+    }
+
+    private static List<AppointmentView> readAppointments(Connection conn, PreparedStatement stmt) throws SQLException {
+        List<AppointmentView> appointments = new ArrayList<>();
+        List<Integer> userIds = new ArrayList<>();
+        long t = Metrics.start();
+        try (ResultSet rs = stmt.executeQuery()) {
+            t = APPOINTMENTS_EXECUTE.stop(t);
+            while (rs.next()) {
+                int userId = rs.getInt("user_id");
+                userIds.add(userId);
+                appointments.add(new AppointmentView(
+                    rs.getInt("id"),
+                    userId,
+                    null,
+                    rs.getTimestamp("start_time").toLocalDateTime(),
+                    rs.getTimestamp("end_time").toLocalDateTime(),
+                    rs.getTimestamp("created_at").toLocalDateTime()
+                ));
+            }
+        }
+        Map<Integer, String> usernames = Session.usernames(conn, userIds);
+        appointments.replaceAll(row -> row.named(usernames.get(row.userId)));
+        APPOINTMENTS_MAP.stop(t);
+        return appointments;
+    }
+}
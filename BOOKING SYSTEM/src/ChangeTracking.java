@@ -0,0 +1,180 @@
+import javafx.collections.ObservableList;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+// Change tracking for incremental refreshes. Tracked tables carry an updated_at
+// column maintained by MySQL; deletes leave a row in row_tombstone. A client keeps
+// the database time of its last read as a watermark and asks only for rows changed
+// since then, re-reading a short overlap so transactions that committed late are
+// not missed. Applying a change set is idempotent.
+public class ChangeTracking {
+
+    // Re-read window before the watermark to cover transactions still open at read time
+    private static final long OVERLAP_MS = 5_000;
+    // Tombstones older than this are pruned; clients that fell further behind reload fully
+    static final long TOMBSTONE_RETENTION_MS = 24L * 60 * 60 * 1000;
+
+    public static class ChangeSet<T> {
+        public final List<T> upserts;
+        // Deleted row id -> referenced id recorded with the tombstone (may be null)
+        public final Map<Integer, Integer> deleted;
+        public final Timestamp asOf;
+
+        public ChangeSet(List<T> upserts, Map<Integer, Integer> deleted, Timestamp asOf) {
+            this.upserts = upserts;
+            this.deleted = deleted;
+            this.asOf = asOf;
+        }
+
+        public boolean isEmpty() {
+            return upserts.isEmpty() && deleted.isEmpty();
+        }
+    }
+
+    // Columns and the tombstone table are created by SchemaMigrations
+    public static void pruneTombstones(Connection conn) throws SQLException {
+        try (PreparedStatement prune = conn.prepareStatement(
+                 "DELETE FROM row_tombstone WHERE deleted_at < ?")) {
+            prune.setTimestamp(1, new Timestamp(now(conn).getTime() - TOMBSTONE_RETENTION_MS));
+            prune.executeUpdate();
+        }
+    }
+
+    // Database clock; watermarks must not depend on the client's clock
+    public static Timestamp now(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT CURRENT_TIMESTAMP(3)")) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    // Lower bound to query from for a given watermark
+    public static Timestamp since(Timestamp watermark) {
+        return new Timestamp(watermark.getTime() - OVERLAP_MS);
+    }
+
+    // Both are database times (asOf from now() or a change set), so the client's clock plays no part;
+    // past half the retention, tombstones the client still needs may have been pruned
+    public static boolean isStale(Timestamp watermark, Timestamp asOf) {
+        return watermark == null || asOf.getTime() - watermark.getTime() > TOMBSTONE_RETENTION_MS / 2;
+    }
+
+    // Must run in the same transaction as the DELETE it records
+    public static void recordDelete(Connection conn, String table, int rowId, Integer refId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "REPLACE INTO row_tombstone (table_name, row_id, ref_id) VALUES (?, ?, ?)")) {
+            stmt.setString(1, table);
+            stmt.setInt(2, rowId);
+            if (refId == null) {
+                stmt.setNull(3, Types.INTEGER);
+            } else {
+                stmt.setInt(3, refId);
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    // Batched form of recordDelete: row id -> referenced id (may be null)
+    public static void recordDeletes(Connection conn, String table, Map<Integer, Integer> rows) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "REPLACE INTO row_tombstone (table_name, row_id, ref_id) VALUES (?, ?, ?)")) {
+            for (Map.Entry<Integer, Integer> row : rows.entrySet()) {
+                stmt.setString(1, table);
+                stmt.setInt(2, row.getKey());
+                if (row.getValue() == null) {
+                    stmt.setNull(3, Types.INTEGER);
+                } else {
+                    stmt.setInt(3, row.getValue());
+                }
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    public static Map<Integer, Integer> deletedSince(Connection conn, String table, Timestamp since) throws SQLException {
+        Map<Integer, Integer> deleted = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT row_id, ref_id FROM row_tombstone WHERE table_name = ? AND deleted_at >= ?")) {
+            stmt.setString(1, table);
+            stmt.setTimestamp(2, since);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int refId = rs.getInt("ref_id");
+                    deleted.put(rs.getInt("row_id"), rs.wasNull() ? null : refId);
+                }
+            }
+        }
+        return deleted;
+    }
+
+    // Applies a change set to a sorted list in place so only changed rows are re-laid out.
+    // Rows not already present are only inserted when inWindow accepts them. Rows are
+    // found through one id -> position map, so a call is linear in the list at worst and
+    // a full snapshot passed as upserts costs one comparison per unchanged row.
+    public static <T> int apply(ObservableList<T> list, Collection<T> upserts, Collection<Integer> deletedIds,
+                                ToIntFunction<T> id, Comparator<T> order, BiPredicate<T, T> same,
+                                Predicate<T> inWindow) {
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (int i = 0; i < list.size(); i++) {
+            positions.put(id.applyAsInt(list.get(i)), i);
+        }
+        BitSet removals = new BitSet(list.size());
+        for (int deletedId : deletedIds) {
+            Integer index = positions.get(deletedId);
+            if (index != null) removals.set(index);
+        }
+        List<T> inserts = new ArrayList<>();
+        TreeMap<Integer, T> updates = new TreeMap<>();
+        for (T row : upserts) {
+            Integer index = positions.get(id.applyAsInt(row));
+            if (index == null || removals.get(index)) {
+                if (inWindow.test(row)) inserts.add(row);
+            } else if (!same.test(list.get(index), row)) {
+                updates.put(index, row);
+            }
+        }
+        int changed = removals.cardinality() + inserts.size();
+        // In index order, so each row is checked against the final value of the one before it.
+        // Rows still awaiting removal keep the list sorted, so dropping them later is safe.
+        for (Map.Entry<Integer, T> update : updates.entrySet()) {
+            int index = update.getKey();
+            T row = update.getValue();
+            boolean keepsPosition = (index == 0 || order.compare(list.get(index - 1), row) <= 0)
+                && (index == list.size() - 1 || order.compare(row, list.get(index + 1)) <= 0);
+            if (keepsPosition) {
+                list.set(index, row);
+            } else {
+                removals.set(index);
+                if (inWindow.test(row)) inserts.add(row);
+            }
+            changed++;
+        }
+        for (int index = removals.previousSetBit(list.size() - 1); index >= 0; index = removals.previousSetBit(index - 1)) {
+            list.remove(index);
+        }
+        for (T row : inserts) {
+            int at = Collections.binarySearch(list, row, order);
+            list.add(at < 0 ? -at - 1 : at, row);
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,305 @@
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// Salted PBKDF2 password hashing. A hash costs a few hundred milliseconds of CPU,
+// so it never runs on the FX thread or on AsyncDb's virtual threads: it goes to a
+// pool with one worker per core and a bounded queue, and a login storm is turned
+// away instead of piling up. Stored hashes carry their own iteration count, so
+// raising the cost (or finding a legacy plaintext row) re-hashes on next login.
+public class CredentialService {
+
+    // Stored as pbkdf2$<iterations>$<salt>$<hash>, 80 characters with the defaults
+    private static final String PREFIX = "pbkdf2";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    static final int ITERATIONS = Integer.getInteger("auth.pbkdf2.iterations", 310_000);
+
+    private static final int WORKERS = Runtime.getRuntime().availableProcessors();
+    private static final ThreadPoolExecutor POOL = new ThreadPoolExecutor(WORKERS, WORKERS,
+        0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(WORKERS * 32), runnable -> {
+            Thread thread = new Thread(runnable, "credential-hash");
+            thread.setDaemon(true);
+            return thread;
+        });
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final LongAdder verified = new LongAdder();
+    private static final LongAdder rehashed = new LongAdder();
+    private static final LongAdder rejected = new LongAdder();
+
+    private static final Metrics.Timer LOGIN = Metrics.timer("login");
+    private static final Metrics.Timer LOOKUP = Metrics.timer("login.lookup");
+    private static final Metrics.Timer VERIFY = Metrics.timer("login.verify");
+
+    public static class Account {
+        public final int id;
+        public final String username;
+        public final boolean isAdmin;
+
+        Account(int id, String username, boolean isAdmin) {
+            this.id = id;
+            this.username = username;
+            this.isAdmin = isAdmin;
+        }
+    }
+
+    // The hashing pool's queue is full; callers should retry shortly
+    public static final class Saturated extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Saturated() {
+            super("Too many sign-ins in progress, try again shortly");
+        }
+    }
+
+    // rehash is set when the password matched but was stored with an outdated cost
+    public static class Verification {
+        public final boolean matches;
+        public final String rehash;
+
+        Verification(boolean matches, String rehash) {
+            this.matches = matches;
+            this.rehash = rehash;
+        }
+    }
+
+    // Hashed on first use, off the calling thread; verifying against it keeps unknown users as slow as known ones
+    private static final class Dummy {
+        static final String HASH = hashNow("unknown-user", ITERATIONS);
+    }
+
+    private static final class StoredCredential {
+        final int id;
+        final String hash;
+        final boolean isAdmin;
+
+        StoredCredential(int id, String hash, boolean isAdmin) {
+            this.id = id;
+            this.hash = hash;
+            this.isAdmin = isAdmin;
+        }
+    }
+
+    public static CompletableFuture<String> hash(String password) {
+        return submit(() -> hashNow(password, ITERATIONS));
+    }
+
+    // stored may be null for an unknown user; the check then fails after the same amount of work
+    public static CompletableFuture<Verification> verify(String password, String stored) {
+        return submit(() -> {
+            verified.increment();
+            long t = Metrics.start();
+            try {
+                if (stored == null) {
+                    matches(password, Dummy.HASH);
+                    return new Verification(false, null);
+                }
+                if (!matches(password, stored)) {
+                    return new Verification(false, null);
+                }
+                return new Verification(true, needsRehash(stored) ? hashNow(password, ITERATIONS) : null);
+            } finally {
+                VERIFY.stop(t);
+            }
+        });
+    }
+
+    // Resolves to the account, or null when the username or password is wrong
+    public static CompletableFuture<Account> login(String username, String password) {
+        long started = Metrics.start();
+        return LOGIN.stopWhenDone(loginAsync(username, password), started);
+    }
+
+    private static CompletableFuture<Account> loginAsync(String username, String password) {
+        return AsyncDb.supply(conn -> findCredential(conn, username))
+            .thenCompose(stored -> verify(password, stored == null ? null : stored.hash)
+                .thenCompose(result -> {
+                    if (stored == null || !result.matches) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    Account account = new Account(stored.id, username, stored.isAdmin);
+                    if (result.rehash == null) {
+                        return CompletableFuture.completedFuture(account);
+                    }
+                    return AsyncDb.supply(conn -> {
+                        updateHash(conn, stored.id, stored.hash, result.rehash);
+                        return account;
+                    }).exceptionally(error -> {
+                        // The old hash still works; try again on the next login
+                        System.err.println("Password rehash failed: " + AsyncDb.unwrap(error).getMessage());
+                        return account;
+                    });
+                }));
+    }
+
+    // Resolves to false when the username is taken
+    public static CompletableFuture<Boolean> register(String username, String password) {
+        return hash(password).thenCompose(hashed -> AsyncDb.supply(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO user (username, password) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setString(1, username);
+                stmt.setString(2, hashed);
+                stmt.executeUpdate();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    // Overwrites whatever was cached for a reused id
+                    if (keys.next()) Session.remember(keys.getInt(1), username);
+                }
+                return true;
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // Duplicate key on username
+                return false;
+            }
+        }));
+    }
+
+    private static StoredCredential findCredential(Connection conn, String username) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT id, password, is_admin FROM user WHERE username = ?")) {
+            stmt.setString(1, username);
+            long t = Metrics.start();
+            try (ResultSet rs = stmt.executeQuery()) {
+                LOOKUP.stop(t);
+                return rs.next()
+                    ? new StoredCredential(rs.getInt("id"), rs.getString("password"), rs.getBoolean("is_admin"))
+                    : null;
+            }
+        }
+    }
+
+    // Only replaces the hash that was verified, so a concurrent password change wins
+    private static void updateHash(Connection conn, int userId, String oldHash, String newHash) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "UPDATE user SET password = ? WHERE id = ? AND password = ?")) {
+            stmt.setString(1, newHash);
+            stmt.setInt(2, userId);
+            stmt.setString(3, oldHash);
+            if (stmt.executeUpdate() > 0) {
+                rehashed.increment();
+                Session.invalidate(userId);
+            }
+        }
+    }
+
+    private static <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, POOL);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new Saturated());
+        }
+    }
+
+    static String hashNow(String password, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(hash);
+    }
+
+    static boolean matches(String password, String stored) {
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4 || !parts[0].equals(PREFIX)) {
+            // Rows written before hashing was introduced hold the plaintext
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        Base64.Decoder base64 = Base64.getDecoder();
+        byte[] expected;
+        byte[] salt;
+        int iterations;
+        try {
+            expected = base64.decode(parts[3]);
+            salt = base64.decode(parts[2]);
+            iterations = Integer.parseInt(parts[1]);
+        } catch (IllegalArgumentException e) {
+            // Corrupt row (NumberFormatException is one too): nobody can log in with it, but it must not throw
+            System.err.println("Unreadable password hash: " + e.getMessage());
+            return false;
+        }
+        if (iterations <= 0 || salt.length == 0 || expected.length == 0) return false;
+        return MessageDigest.isEqual(expected, pbkdf2(password, salt, iterations));
+    }
+
+    static boolean needsRehash(String stored) {
+        return !stored.startsWith(PREFIX + "$" + ITERATIONS + "$");
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    public static String stats() {
+        return String.format("workers=%d queued=%d verified=%d rehashed=%d rejected=%d",
+            WORKERS, POOL.getQueue().size(), verified.sum(), rehashed.sum(), rejected.sum());
+    }
+
+    // Usage: CredentialService [seconds]  -- verifications per second, single thread and on the pool
+    public static void main(String[] args) throws Exception {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 5;
+        String stored = hashNow("benchmark-password", ITERATIONS);
+        matches("benchmark-password", stored);
+
+        long single = 0;
+        long began = System.nanoTime();
+        long deadline = began + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < deadline) {
+            matches("benchmark-password", stored);
+            single++;
+        }
+        double singleRate = single / ((System.nanoTime() - began) / 1e9);
+
+        // Keep the queue full without overflowing it
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder done = new LongAdder();
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < WORKERS * 2; i++) {
+            clients.add(Thread.ofVirtual().start(() -> {
+                while (running.get()) {
+                    verify("benchmark-password", stored).join();
+                    done.increment();
+                }
+            }));
+        }
+        began = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        running.set(false);
+        long pooled = done.sum();
+        double pooledRate = pooled / ((System.nanoTime() - began) / 1e9);
+        for (Thread client : clients) {
+            client.join();
+        }
+
+        System.out.printf("%s, %d iterations, %d cores%n", ALGORITHM, ITERATIONS, WORKERS);
+        System.out.printf("Single thread: %.1f logins/s (%.1f ms each)%n", singleRate, 1000 / singleRate);
+        System.out.printf("Worker pool:   %.1f logins/s, %.1f logins/s per core%n", pooledRate, pooledRate / WORKERS);
+    }
+}
@@ -1,16 +1,247 @@
-import java.util.HashMap;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 
+// Local user store for offline mode. Lookups hit a ConcurrentHashMap; every change
+// is appended to a memory-mapped log, so a write costs a memcpy and survives a
+// process crash. At startup the last snapshot is loaded and the log replayed on
+// top of it. Once the log grows past a threshold it is folded into a new snapshot.
 public class Database {
-    private static HashMap<String, String> users = new HashMap<>();
+
+    private static final Path DIR = Paths.get(System.getProperty("db.users.dir", "data"));
+    private static final Path LOG = DIR.resolve("users.log");
+    private static final Path SNAPSHOT = DIR.resolve("users.snapshot");
+    private static final int LOG_MAGIC = 0x55534C47;
+    private static final int HEADER_BYTES = 8;
+    // Record: length, generation, crc, then username and hash as length-prefixed UTF-8
+    private static final int RECORD_HEADER_BYTES = 12;
+    private static final int INITIAL_LOG_BYTES = 1 << 20;
+    private static final long COMPACT_AFTER_BYTES = Long.getLong("db.users.compactAfterBytes", 4L << 20);
+    private static final long SYNC_SECONDS = 5;
+
+    // username -> salted hash, never the password itself
+    private static final Map<String, String> users = new ConcurrentHashMap<>();
+
+    // Guarded by Database.class
+    private static FileChannel channel;
+    private static MappedByteBuffer log;
+    private static int generation;
+
+    private static final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "user-store-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open user store in " + DIR.toAbsolutePath(), e);
+        }
+        maintenance.scheduleWithFixedDelay(Database::maintain, SYNC_SECONDS, SYNC_SECONDS, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(Database::close));
+    }
 
     public static boolean authenticateUser(String username, String password) {
-        return users.containsKey(username) && users.get(username).equals(password);
+        String stored = users.get(username);
+        CredentialService.Verification result;
+        try {
+            result = CredentialService.verify(password, stored).join();
+        } catch (CompletionException e) {
+            System.err.println("Login check failed: " + AsyncDb.unwrap(e).getMessage());
+            return false;
+        }
+        if (result.matches && result.rehash != null && users.replace(username, stored, result.rehash)) {
+            append(username, result.rehash);
+        }
+        return result.matches;
     }
 
     public static boolean registerUser(String username, String password) {
         if (users.containsKey(username)) return false;
-        users.put(username, password);
+        String hash;
+        try {
+            hash = CredentialService.hash(password).join();
+        } catch (CompletionException e) {
+            System.err.println("Password hashing failed: " + AsyncDb.unwrap(e).getMessage());
+            return false;
+        }
+        // Only the registration that wins the slot in the map is logged
+        if (users.putIfAbsent(username, hash) != null) return false;
+        append(username, hash);
         return true;
     }
-    
+
+    private static synchronized void open() throws IOException {
+        Files.createDirectories(DIR);
+        int snapshotGeneration = loadSnapshot();
+
+        channel = FileChannel.open(LOG, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        log = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), INITIAL_LOG_BYTES));
+        if (log.getInt(0) == LOG_MAGIC && log.getInt(4) == snapshotGeneration) {
+            replay(snapshotGeneration);
+        } else {
+            // New store, or the snapshot already covers this log (crash during compaction)
+            resetLog(snapshotGeneration);
+        }
+        generation = snapshotGeneration;
+    }
+
+    private static int loadSnapshot() throws IOException {
+        if (!Files.exists(SNAPSHOT)) return 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(SNAPSHOT)))) {
+            int snapshotGeneration = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                users.put(in.readUTF(), in.readUTF());
+            }
+            return snapshotGeneration;
+        }
+    }
+
+    // Stops at the first record that is missing, torn or from an older generation
+    private static void replay(int expectedGeneration) {
+        int position = HEADER_BYTES;
+        while (position + RECORD_HEADER_BYTES <= log.capacity()) {
+            int length = log.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_BYTES + length > log.capacity()) break;
+            if (log.getInt(position + 4) != expectedGeneration) break;
+            byte[] payload = new byte[length];
+            log.get(position + RECORD_HEADER_BYTES, payload);
+            if (log.getInt(position + 8) != crc(payload)) break;
+
+            int userLength = ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF);
+            String username = new String(payload, 2, userLength, StandardCharsets.UTF_8);
+            String hash = new String(payload, 2 + userLength, length - 2 - userLength, StandardCharsets.UTF_8);
+            users.put(username, hash);
+            position += RECORD_HEADER_BYTES + length;
+        }
+        log.position(position);
+        // Anything past here is garbage from a torn write; make sure it can never replay
+        if (position + 4 <= log.capacity()) log.putInt(position, 0);
+    }
+
+    private static synchronized void append(String username, String hash) {
+        byte[] user = username.getBytes(StandardCharsets.UTF_8);
+        byte[] hashed = hash.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[2 + user.length + hashed.length];
+        payload[0] = (byte) (user.length >>> 8);
+        payload[1] = (byte) user.length;
+        System.arraycopy(user, 0, payload, 2, user.length);
+        System.arraycopy(hashed, 0, payload, 2 + user.length, hashed.length);
+
+        try {
+            int needed = RECORD_HEADER_BYTES + payload.length + 4;
+            if (log.remaining() < needed) {
+                if (log.position() > COMPACT_AFTER_BYTES) {
+                    compact();
+                }
+                if (log.remaining() < needed) {
+                    grow(needed);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot extend user log", e);
+        }
+
+        int position = log.position();
+        // Terminator first, then the body, and the length last so a torn write never looks complete
+        log.putInt(position + RECORD_HEADER_BYTES + payload.length, 0);
+        log.putInt(position + 4, generation);
+        log.putInt(position + 8, crc(payload));
+        log.put(position + RECORD_HEADER_BYTES, payload);
+        log.putInt(position, payload.length);
+        log.position(position + RECORD_HEADER_BYTES + payload.length);
+    }
+
+    private static void grow(int needed) throws IOException {
+        int position = log.position();
+        long capacity = Math.max((long) log.capacity() * 2, position + needed);
+        log.force();
+        log = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        log.position(position);
+    }
+
+    // Writes the whole map as the next generation's snapshot, then starts an empty log for it
+    private static synchronized void compact() throws IOException {
+        int next = generation + 1;
+        Path tmp = DIR.resolve("users.snapshot.tmp");
+        Map<String, String> copy = Map.copyOf(users);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(next);
+            out.writeInt(copy.size());
+            for (Map.Entry<String, String> entry : copy.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+        }
+        try (FileChannel file = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            file.force(true);
+        }
+        Files.move(tmp, SNAPSHOT, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        resetLog(next);
+        generation = next;
+    }
+
+    private static void resetLog(int logGeneration) {
+        log.putInt(0, LOG_MAGIC);
+        log.putInt(4, logGeneration);
+        log.putInt(HEADER_BYTES, 0);
+        log.position(HEADER_BYTES);
+        log.force();
+    }
+
+    private static void maintain() {
+        try {
+            synchronized (Database.class) {
+                if (log.position() > COMPACT_AFTER_BYTES) {
+                    compact();
+                } else {
+                    log.force();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("User store maintenance failed: " + e.getMessage());
+        }
+    }
+
+    static synchronized void close() {
+        maintenance.shutdownNow();
+        try {
+            log.force();
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing user store: " + e.getMessage());
+        }
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    public static int size() {
+        return users.size();
+    }
+
 }
@@ -1,15 +1,387 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+// Bounded JDBC connection pool shared by every screen of the application.
+// Callers keep using try-with-resources: closing a pooled connection hands it
+// back to the pool instead of tearing down the MySQL session. Each pooled
+// connection also keeps its prepared statements, so with server-side prepares a
+// hot query is parsed once per connection rather than once per call.
 public class DatabaseConnection {
 
-    private static final String URL = "jdbc:mysql://localhost:3306/appointment_system";
-    private static final String USERNAME = "root";
-    private static final String PASSWORD = " ";
+    private static final String URL = System.getProperty("db.url",
+            "jdbc:mysql://localhost:3306/appointment_system?useSSL=false&rewriteBatchedStatements=true&useServerPrepStmts=true");
+    private static final String USERNAME = System.getProperty("db.user", "root");
+    private static final String PASSWORD = System.getProperty("db.password", "");
 
-    // This method returns the database connection
+    private static final int MAX_SIZE = Integer.getInteger("db.pool.maxSize", 10);
+    private static final long ACQUIRE_TIMEOUT_MS = Long.getLong("db.pool.acquireTimeoutMs", 5_000);
+    private static final long IDLE_TIMEOUT_MS = Long.getLong("db.pool.idleTimeoutMs", 300_000);
+    // Connections idle for less than this are handed out without a validation round trip
+    private static final long VALIDATE_AFTER_MS = 5_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    // Prepared statements kept open per connection, least recently used evicted first
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("db.pool.statementCacheSize", 64);
+
+    // LIFO so the most recently used (warmest) connection is reused first
+    private static final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private static final Semaphore permits = new Semaphore(MAX_SIZE, true);
+    private static final AtomicInteger open = new AtomicInteger();
+
+    private static final LongAdder acquired = new LongAdder();
+    private static final LongAdder created = new LongAdder();
+    private static final LongAdder evicted = new LongAdder();
+    private static final LongAdder timeouts = new LongAdder();
+    private static final LongAdder waitNanos = new LongAdder();
+    private static final AtomicLong maxWaitNanos = new AtomicLong();
+    private static final LongAdder statementHits = new LongAdder();
+    private static final LongAdder statementMisses = new LongAdder();
+    private static final Metrics.Timer ACQUIRE = Metrics.timer("db.acquire");
+
+    private static final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "db-pool-evictor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        long period = Math.max(1_000, IDLE_TIMEOUT_MS / 2);
+        evictor.scheduleWithFixedDelay(DatabaseConnection::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // This method returns a pooled database connection; close() returns it to the pool
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USERNAME, PASSWORD);
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTransientConnectionException("Timed out after " + ACQUIRE_TIMEOUT_MS
+                        + " ms waiting for a database connection (" + stats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = borrowIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(URL, USERNAME, PASSWORD));
+                open.incrementAndGet();
+                created.increment();
+            }
+            long waited = System.nanoTime() - start;
+            recordWait(waited);
+            ACQUIRE.record(waited);
+            acquired.increment();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public static String getUrl() {
+        return URL;
+    }
+
+    // Opens connections up front so the first user action does not pay the handshake
+    public static void warmUp(int connections) throws SQLException {
+        int target = Math.min(connections, MAX_SIZE);
+        Connection[] held = new Connection[target];
+        try {
+            for (int i = 0; i < target; i++) {
+                held[i] = getConnection();
+            }
+        } finally {
+            for (Connection conn : held) {
+                if (conn != null) conn.close();
+            }
+        }
+    }
+
+    public static String stats() {
+        long count = acquired.sum();
+        long avgWaitMicros = count == 0 ? 0 : waitNanos.sum() / count / 1_000;
+        return String.format("open=%d idle=%d inUse=%d waiting=%d acquired=%d created=%d evicted=%d timeouts=%d avgWait=%dus maxWait=%dus stmtHits=%d stmtMisses=%d",
+                open.get(), idle.size(), MAX_SIZE - permits.availablePermits(),
+                permits.getQueueLength(), count, created.sum(), evicted.sum(), timeouts.sum(),
+                avgWaitMicros, maxWaitNanos.get() / 1_000, statementHits.sum(), statementMisses.sum());
+    }
+
+    public static void shutdown() {
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+    }
+
+    private static PooledConnection borrowIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (pooled.isUsable()) {
+                return pooled;
+            }
+            pooled.closePhysical();
+            evicted.increment();
+        }
+        return null;
+    }
+
+    private static void release(PooledConnection pooled, boolean reusable) {
+        try {
+            if (reusable) {
+                idle.offerFirst(pooled);
+            } else {
+                pooled.closePhysical();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static void evictIdle() {
+        long cutoff = System.currentTimeMillis() - IDLE_TIMEOUT_MS;
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            if (pooled.lastUsed < cutoff && idle.removeFirstOccurrence(pooled)) {
+                pooled.closePhysical();
+                evicted.increment();
+            }
+        }
+    }
+
+    private static void recordWait(long nanos) {
+        waitNanos.add(nanos);
+        long max;
+        while (nanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, nanos)) {
+            // retry until the larger value sticks
+        }
+    }
+
+    // Physical connection plus the bookkeeping the pool needs around it
+    private static final class PooledConnection {
+        private final Connection physical;
+        private volatile long lastUsed = System.currentTimeMillis();
+        // Only touched by the thread holding the lease
+        private final Map<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= STATEMENT_CACHE_SIZE) return false;
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        boolean isUsable() {
+            try {
+                if (physical.isClosed()) return false;
+                if (System.currentTimeMillis() - lastUsed < VALIDATE_AFTER_MS) return true;
+                return physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new Lease(this));
+        }
+
+        // Undo whatever the borrower changed so the next caller gets a clean session
+        boolean reset() {
+            try {
+                if (physical.isClosed()) return false;
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (physical.isReadOnly()) physical.setReadOnly(false);
+                physical.clearWarnings();
+                // Statements the borrower forgot to close go back to the cache
+                for (CachedStatement cached : statements.values()) {
+                    if (cached.checkedOut) cached.checkIn();
+                }
+                lastUsed = System.currentTimeMillis();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        // Hands out the cached statement for sql, or a plain one if it is already in use
+        PreparedStatement prepare(String sql, Connection lease) throws SQLException {
+            CachedStatement cached = statements.get(sql);
+            if (cached != null && cached.checkedOut) {
+                statementMisses.increment();
+                return physical.prepareStatement(sql);
+            }
+            if (cached == null) {
+                statementMisses.increment();
+                cached = new CachedStatement(physical.prepareStatement(sql));
+                statements.put(sql, cached);
+            } else {
+                statementHits.increment();
+            }
+            return cached.checkOut(lease);
+        }
+
+        void closePhysical() {
+            open.decrementAndGet();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing pooled connection: " + e.getMessage());
+            }
+        }
+    }
+
+    // Handle given to callers: close() returns the connection, everything else is delegated
+    private static final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled, pooled.reset());
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "prepareStatement":
+                    if (!closed && args.length == 1 && STATEMENT_CACHE_SIZE > 0) {
+                        return pooled.prepare((String) args[0], (Connection) proxy);
+                    }
+                    break;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(pooled.physical)) return pooled.physical;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // A prepared statement that outlives close(): closing a checkout only clears its parameters
+    private static final class CachedStatement {
+        private final PreparedStatement physical;
+        private boolean checkedOut;
+        private boolean evicted;
+        // Identifies the current checkout so a stale handle cannot close a later one
+        private int checkout;
+
+        CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+        }
+
+        PreparedStatement checkOut(Connection lease) {
+            checkedOut = true;
+            int id = ++checkout;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    (proxy, method, args) -> {
+                        boolean current = checkedOut && checkout == id;
+                        switch (method.getName()) {
+                            case "close":
+                                if (current) checkIn();
+                                return null;
+                            case "isClosed":
+                                return !current || physical.isClosed();
+                            case "getConnection":
+                                return lease;
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            default:
+                                break;
+                        }
+                        if (!current) {
+                            throw new SQLException("Statement has been closed");
+                        }
+                        try {
+                            return method.invoke(physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        void checkIn() {
+            checkedOut = false;
+            try {
+                if (evicted) {
+                    physical.close();
+                    return;
+                }
+                physical.clearParameters();
+                physical.clearBatch();
+                physical.clearWarnings();
+            } catch (SQLException e) {
+                evicted = true;
+                closeQuietly();
+            }
+        }
+
+        void evict() {
+            evicted = true;
+            if (!checkedOut) closeQuietly();
+        }
+
+        private void closeQuietly() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing cached statement: " + e.getMessage());
+            }
+        }
     }
 }
@@ -0,0 +1,291 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Half-open intervals [start, end) in epoch seconds, grouped by key (a user id), for
+// "does this booking overlap anything the user already holds?". Each key keeps its
+// intervals sorted by start in plain arrays next to a running maximum of the ends,
+// so a check is two binary searches, O(log n) in the user's own bookings; adding or
+// removing one shifts the arrays, O(n), which stays cheap at the few dozen
+// bookings one user holds.
+//
+// The index is a fast in-process filter, not the authority: other instances book and
+// cancel behind its back. Callers confirm with verify() inside the booking transaction,
+// which locks the user's rows in the window and brings the index up to date with them.
+public final class IntervalIndex {
+
+    // Reads key, id, start, end (epoch seconds) from the current row of a load query
+    interface RowReader {
+        long[] read(ResultSet rs) throws SQLException;
+    }
+
+    // Prepares a query for the key's rows that may overlap [start, end), locking them
+    // FOR UPDATE; its rows are read with the same RowReader and filtered exactly here
+    interface WindowQuery {
+        PreparedStatement prepare(Connection conn, int key, long start, long end) throws SQLException;
+    }
+
+    private static final int NONE = -1;
+
+    private final String loadSql;
+    private final RowReader reader;
+    private final WindowQuery window;
+    private final ConcurrentHashMap<Integer, Intervals> byKey = new ConcurrentHashMap<>();
+    // key << 32 | id of reservations whose booking has not committed yet
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+
+    public IntervalIndex(String loadSql, RowReader reader, WindowQuery window) {
+        this.loadSql = loadSql;
+        this.reader = reader;
+        this.window = window;
+    }
+
+    private static long pendingKey(int key, int id) {
+        return (long) key << 32 | (id & 0xffffffffL);
+    }
+
+    // Bulk build from the database on first use; later calls return at once
+    public void ensureLoaded(Connection conn) throws SQLException {
+        if (loaded) return;
+        synchronized (this) {
+            if (loaded) return;
+            Map<Integer, Intervals> built = new HashMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(loadSql);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long[] row = reader.read(rs);
+                    if (row == null || row[3] <= row[2]) continue;
+                    built.computeIfAbsent((int) row[0], key -> new Intervals()).append((int) row[1], row[2], row[3]);
+                }
+            }
+            built.values().forEach(Intervals::sort);
+            byKey.putAll(built);
+            loaded = true;
+        }
+    }
+
+    // Id of an interval of the key overlapping [start, end), or -1
+    public int overlapping(int key, long start, long end) {
+        Intervals intervals = byKey.get(key);
+        if (intervals == null) return NONE;
+        synchronized (intervals) {
+            return intervals.overlapping(start, end);
+        }
+    }
+
+    // Adds the interval, pending until confirm(), unless it overlaps one the key holds.
+    // Returns -1 when added, otherwise the id it collides with. Check and insert are atomic per key.
+    public int reserve(int key, int id, long start, long end) {
+        Intervals intervals = byKey.computeIfAbsent(key, k -> new Intervals());
+        synchronized (intervals) {
+            int clash = intervals.overlapping(start, end);
+            if (clash == NONE) {
+                intervals.insert(id, start, end);
+                pending.add(pendingKey(key, id));
+            }
+            return clash;
+        }
+    }
+
+    // Like reserve, but a clash with an interval that the database no longer has (cancelled
+    // by another instance) is dropped and the reservation retried once
+    public int reserve(Connection conn, int key, int id, long start, long end) throws SQLException {
+        int clash = reserve(key, id, start, end);
+        if (clash == NONE) return NONE;
+        verify(conn, key, id, start, end);
+        return reserve(key, id, start, end);
+    }
+
+    // The reservation's booking has committed
+    public void confirm(int key, int id) {
+        pending.remove(pendingKey(key, id));
+    }
+
+    public void remove(int key, int id) {
+        Intervals intervals = byKey.get(key);
+        if (intervals == null) return;
+        synchronized (intervals) {
+            intervals.remove(id);
+            pending.remove(pendingKey(key, id));
+        }
+    }
+
+    // The authoritative check, run in the booking transaction: reads (and locks) the key's
+    // rows in the window and returns the id of one overlapping [start, end) other than
+    // ownId, or -1. Rows booked elsewhere are added to the index; committed intervals
+    // the database no longer has are dropped. Pending reservations are left alone.
+    public int verify(Connection conn, int key, int ownId, long start, long end) throws SQLException {
+        List<long[]> rows = new ArrayList<>();
+        try (PreparedStatement stmt = window.prepare(conn, key, start, end);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                long[] row = reader.read(rs);
+                if (row != null && row[3] > row[2] && row[2] < end && row[3] > start) {
+                    rows.add(row);
+                }
+            }
+        }
+        Intervals intervals = byKey.computeIfAbsent(key, k -> new Intervals());
+        synchronized (intervals) {
+            Set<Integer> live = new HashSet<>();
+            for (long[] row : rows) {
+                live.add((int) row[1]);
+            }
+            for (int id : intervals.idsOverlapping(start, end)) {
+                if (!live.contains(id) && !pending.contains(pendingKey(key, id))) {
+                    intervals.remove(id);
+                }
+            }
+            int clash = NONE;
+            for (long[] row : rows) {
+                int id = (int) row[1];
+                if (id == ownId) continue;
+                if (!intervals.contains(id)) {
+                    intervals.insert(id, row[2], row[3]);
+                }
+                if (clash == NONE) clash = id;
+            }
+            return clash;
+        }
+    }
+
+    public int size() {
+        int total = 0;
+        for (Intervals intervals : byKey.values()) {
+            synchronized (intervals) {
+                total += intervals.count;
+            }
+        }
+        return total;
+    }
+
+    // One key's intervals sorted by (start, id); maxEnd[i] is the largest end in [0, i]
+    private static final class Intervals {
+        int[] ids = new int[4];
+        long[] starts = new long[4];
+        long[] ends = new long[4];
+        long[] maxEnd = new long[4];
+        int count;
+
+        int overlapping(long start, long end) {
+            // Intervals [0, n) start before end; one of them overlaps iff its end passes start
+            int n = firstStartAtOrAfter(end);
+            if (n == 0 || maxEnd[n - 1] <= start) return NONE;
+            // maxEnd only grows, so the first index where it passes start is an interval that does
+            int lo = 0, hi = n - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (maxEnd[mid] <= start) lo = mid + 1;
+                else hi = mid;
+            }
+            return ids[lo];
+        }
+
+        List<Integer> idsOverlapping(long start, long end) {
+            List<Integer> found = new ArrayList<>();
+            int n = firstStartAtOrAfter(end);
+            for (int i = 0; i < n; i++) {
+                if (ends[i] > start) found.add(ids[i]);
+            }
+            return found;
+        }
+
+        boolean contains(int id) {
+            for (int i = 0; i < count; i++) {
+                if (ids[i] == id) return true;
+            }
+            return false;
+        }
+
+        private int firstStartAtOrAfter(long time) {
+            int lo = 0, hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] < time) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        void insert(int id, long start, long end) {
+            grow();
+            int at = firstStartAtOrAfter(start);
+            while (at < count && starts[at] == start && ids[at] < id) at++;
+            System.arraycopy(ids, at, ids, at + 1, count - at);
+            System.arraycopy(starts, at, starts, at + 1, count - at);
+            System.arraycopy(ends, at, ends, at + 1, count - at);
+            ids[at] = id;
+            starts[at] = start;
+            ends[at] = end;
+            count++;
+            recomputeFrom(at);
+        }
+
+        void remove(int id) {
+            for (int i = 0; i < count; i++) {
+                if (ids[i] != id) continue;
+                System.arraycopy(ids, i + 1, ids, i, count - i - 1);
+                System.arraycopy(starts, i + 1, starts, i, count - i - 1);
+                System.arraycopy(ends, i + 1, ends, i, count - i - 1);
+                count--;
+                recomputeFrom(i);
+                return;
+            }
+        }
+
+        // Bulk load: rows arrive unsorted, sorted once at the end
+        void append(int id, long start, long end) {
+            grow();
+            ids[count] = id;
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        void sort() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> starts[a] != starts[b] ? Long.compare(starts[a], starts[b])
+                : Integer.compare(ids[a], ids[b]));
+            int[] sortedIds = new int[ids.length];
+            long[] sortedStarts = new long[ids.length];
+            long[] sortedEnds = new long[ids.length];
+            for (int i = 0; i < count; i++) {
+                sortedIds[i] = ids[order[i]];
+                sortedStarts[i] = starts[order[i]];
+                sortedEnds[i] = ends[order[i]];
+            }
+            ids = sortedIds;
+            starts = sortedStarts;
+            ends = sortedEnds;
+            recomputeFrom(0);
+        }
+
+        private void recomputeFrom(int from) {
+            long max = from == 0 ? Long.MIN_VALUE : maxEnd[from - 1];
+            for (int i = from; i < count; i++) {
+                max = Math.max(max, ends[i]);
+                maxEnd[i] = max;
+            }
+        }
+
+        private void grow() {
+            if (count < ids.length) return;
+            int size = ids.length * 2;
+            ids = Arrays.copyOf(ids, size);
+            starts = Arrays.copyOf(starts, size);
+            ends = Arrays.copyOf(ends, size);
+            maxEnd = Arrays.copyOf(maxEnd, size);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.VirtualFlow;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+// Feeds a TableView from a keyset (seek) paginated query. Only a sliding window of
+// pages is kept in the table: scrolling near the bottom prefetches the next page and
+// drops the oldest one, scrolling back up seeks backwards again. Memory and query
+// cost stay bounded no matter how many rows the table has. With a DeltaQuery,
+// refresh() only fetches rows changed since the last read and patches the window.
+public class KeysetPager<T> {
+
+    public interface PageQuery<T> {
+        // Up to limit rows ordered by key that come strictly after row (null: from the start)
+        List<T> after(Connection conn, T row, int limit) throws SQLException;
+
+        // Up to limit rows strictly before row, returned in ascending key order
+        List<T> before(Connection conn, T row, int limit) throws SQLException;
+    }
+
+    public interface DeltaQuery<T> {
+        ChangeTracking.ChangeSet<T> changesSince(Connection conn, Timestamp since) throws SQLException;
+    }
+
+    private static final class Page<T> {
+        final List<T> rows;
+        final Timestamp asOf;
+
+        Page(List<T> rows, Timestamp asOf) {
+            this.rows = rows;
+            this.asOf = asOf;
+        }
+    }
+
+    private static final double PREFETCH_THRESHOLD = 0.85;
+
+    private final TableView<T> table;
+    private final PageQuery<T> query;
+    private final int pageSize;
+    private final int maxRows;
+    private final ObservableList<T> window = FXCollections.observableArrayList();
+    private final AsyncDb.Latest<Page<T>> loader = new AsyncDb.Latest<>();
+    private final AsyncDb.Latest<ChangeTracking.ChangeSet<T>> deltaLoader = new AsyncDb.Latest<>();
+    private DeltaQuery<T> delta;
+    private ToIntFunction<T> id;
+    private Comparator<T> order;
+    private BiPredicate<T, T> same;
+    private Timestamp watermark;
+    private boolean loading;
+    private boolean atStart = true;
+    private boolean atEnd;
+    private boolean scrollAttached;
+    private int attachAttempts;
+
+    public KeysetPager(TableView<T> table, PageQuery<T> query, int pageSize, int maxPages) {
+        this.table = table;
+        this.query = query;
+        this.pageSize = pageSize;
+        this.maxRows = pageSize * maxPages;
+        table.setItems(window);
+        table.skinProperty().addListener((obs, oldSkin, newSkin) -> attachScrollListener());
+        if (table.getSkin() != null) attachScrollListener();
+    }
+
+    public ObservableList<T> getWindow() {
+        return window;
+    }
+
+    public void enableDelta(DeltaQuery<T> delta, ToIntFunction<T> id, Comparator<T> order, BiPredicate<T, T> same) {
+        this.delta = delta;
+        this.id = id;
+        this.order = order;
+        this.same = same;
+    }
+
+    // Starts again from the first page
+    public void reload() {
+        table.setPlaceholder(new Label("Loading..."));
+        loading = true;
+        deltaLoader.cancel();
+        loader.submit(conn -> {
+            Timestamp asOf = delta == null ? null : ChangeTracking.now(conn);
+            return new Page<>(query.after(conn, null, pageSize), asOf);
+        }, page -> {
+            loading = false;
+            atStart = true;
+            atEnd = page.rows.size() < pageSize;
+            watermark = page.asOf;
+            window.setAll(page.rows);
+        }, this::failed);
+    }
+
+    // Applies only what changed since the last read; falls back to reload() when it cannot
+    public void refresh() {
+        if (delta == null || loading || watermark == null) {
+            reload();
+            return;
+        }
+        Timestamp from = watermark;
+        Timestamp since = ChangeTracking.since(from);
+        deltaLoader.submit(conn -> delta.changesSince(conn, since), changes -> {
+            if (ChangeTracking.isStale(from, changes.asOf)) {
+                reload();
+                return;
+            }
+            watermark = changes.asOf;
+            ChangeTracking.apply(window, changes.upserts, changes.deleted.keySet(), id, order, same, this::inWindow);
+        }, error -> {
+            AsyncDb.logError(error);
+            reload();
+        });
+    }
+
+    public void cancel() {
+        loader.cancel();
+        deltaLoader.cancel();
+        loading = false;
+    }
+
+    // New rows only belong in the window if they fall between the pages already loaded
+    private boolean inWindow(T row) {
+        if (window.isEmpty()) return atStart && atEnd;
+        return (atStart || order.compare(row, window.get(0)) >= 0)
+            && (atEnd || order.compare(row, window.get(window.size() - 1)) <= 0);
+    }
+
+    private void loadNext() {
+        if (loading || atEnd || window.isEmpty()) return;
+        T last = window.get(window.size() - 1);
+        loading = true;
+        loader.submit(conn -> new Page<>(query.after(conn, last, pageSize), null), page -> {
+            List<T> rows = page.rows;
+            loading = false;
+            atEnd = rows.size() < pageSize;
+            window.addAll(rows);
+            int overflow = window.size() - maxRows;
+            if (overflow > 0) {
+                int first = firstVisibleIndex();
+                window.remove(0, overflow);
+                atStart = false;
+                table.scrollTo(Math.max(0, first - overflow));
+            }
+        }, this::failed);
+    }
+
+    private void loadPrevious() {
+        if (loading || atStart || window.isEmpty()) return;
+        T first = window.get(0);
+        loading = true;
+        loader.submit(conn -> new Page<>(query.before(conn, first, pageSize), null), page -> {
+            List<T> rows = page.rows;
+            loading = false;
+            atStart = rows.size() < pageSize;
+            int visible = firstVisibleIndex();
+            window.addAll(0, rows);
+            int overflow = window.size() - maxRows;
+            if (overflow > 0) {
+                window.remove(window.size() - overflow, window.size());
+                atEnd = false;
+            }
+            table.scrollTo(visible + rows.size());
+        }, this::failed);
+    }
+
+    private void failed(Throwable error) {
+        loading = false;
+        AsyncDb.logError(error);
+    }
+
+    private void attachScrollListener() {
+        if (scrollAttached) return;
+        for (Node node : table.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+                ScrollBar bar = (ScrollBar) node;
+                bar.valueProperty().addListener((obs, oldValue, value) -> {
+                    double position = (value.doubleValue() - bar.getMin()) / (bar.getMax() - bar.getMin());
+                    if (position >= PREFETCH_THRESHOLD) {
+                        loadNext();
+                    } else if (position <= 1 - PREFETCH_THRESHOLD) {
+                        loadPrevious();
+                    }
+                });
+                scrollAttached = true;
+                return;
+            }
+        }
+        // Scroll bars only exist once the skin has laid out; try again on the next pulse
+        if (++attachAttempts < 10) {
+            Platform.runLater(this::attachScrollListener);
+        }
+    }
+
+    private int firstVisibleIndex() {
+        Node node = table.lookup(".virtual-flow");
+        if (node instanceof VirtualFlow) {
+            IndexedCell<?> cell = ((VirtualFlow<?>) node).getFirstVisibleCell();
+            if (cell != null) return cell.getIndex();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,272 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Headless booking storm: thousands of virtual-thread clients released at once,
+// each booking through the same engine calls the UIs use. A share of requests goes
+// to a small set of hot slots. Every BOOKED outcome is recorded per slot, and the
+// database is checked afterwards, so a double booking is reported however it happened.
+//
+// Usage (H2 on the classpath for the embedded default, or -Ddb.url for a real server):
+//   java -cp out:h2.jar:javafx-base.jar:javafx-graphics.jar:javafx-controls.jar LoadGenerator
+// -Dload.mode=slot|appointments   slot: AppointmentSystem schema, appointments: LoginApp schema
+// -Dload.clients=2000 -Dload.requestsPerClient=5 -Dload.slots=2000 -Dload.users=500
+// -Dload.hotSlots=20 -Dload.hotShare=0.8   share of requests aimed at the hot slots
+// -Dload.engines=1                         more than one simulates separate app instances
+public class LoadGenerator {
+
+    private static final String EMBEDDED_URL =
+        "jdbc:h2:mem:load;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+
+    private static final String MODE = System.getProperty("load.mode", "slot");
+    private static final int CLIENTS = Integer.getInteger("load.clients", 2_000);
+    private static final int REQUESTS_PER_CLIENT = Integer.getInteger("load.requestsPerClient", 5);
+    private static final int SLOTS = Integer.getInteger("load.slots", 2_000);
+    private static final int USERS = Integer.getInteger("load.users", 500);
+    private static final int HOT_SLOTS = Integer.getInteger("load.hotSlots", 20);
+    private static final double HOT_SHARE = Double.parseDouble(System.getProperty("load.hotShare", "0.8"));
+    private static final int ENGINES = Integer.getInteger("load.engines", 1);
+
+    private static final LongAdder booked = new LongAdder();
+    private static final LongAdder lostRaces = new LongAdder();
+    private static final LongAdder conflicts = new LongAdder();
+    private static final LongAdder failures = new LongAdder();
+    // Slot or appointment id -> user that got BOOKED for it
+    private static final Map<Integer, Integer> winners = new ConcurrentHashMap<>();
+    private static final LongAdder doubleBooked = new LongAdder();
+
+    private static int firstId;
+    private static int idCount;
+
+    public static void main(String[] args) throws Exception {
+        // Must be set before DatabaseConnection is first touched
+        if (System.getProperty("db.url") == null) {
+            System.setProperty("db.url", EMBEDDED_URL);
+            System.setProperty("db.user", "sa");
+        }
+        boolean slotMode = !"appointments".equals(MODE);
+
+        BookingEngine[] engines = new BookingEngine[ENGINES];
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            SchemaMigrations.migrate(conn);
+            if (!slotMode) SchemaMigrations.ensureLoginAppointments(conn);
+            seedUsers(conn);
+            if (slotMode) {
+                seedSlots(conn);
+            } else {
+                seedAppointments(conn);
+            }
+            for (int i = 0; i < ENGINES; i++) {
+                SlotAvailabilityIndex index = null;
+                if (slotMode) {
+                    index = new SlotAvailabilityIndex();
+                    index.reload(conn);
+                }
+                engines[i] = new BookingEngine(index);
+            }
+        }
+        System.out.printf("mode=%s clients=%d requests=%d targets=%d hot=%d (%.0f%%) engines=%d%n",
+            MODE, CLIENTS, CLIENTS * REQUESTS_PER_CLIENT, idCount, HOT_SLOTS, HOT_SHARE * 100, ENGINES);
+
+        long[] latencies = new long[CLIENTS * REQUESTS_PER_CLIENT];
+        AtomicInteger recorded = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        long began;
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                int client = c;
+                clients.submit(() -> {
+                    BookingEngine engine = engines[client % ENGINES];
+                    int userId = client % USERS;
+                    start.await();
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        int target = pickTarget();
+                        long t0 = System.nanoTime();
+                        try (Connection conn = DatabaseConnection.getConnection()) {
+                            BookingEngine.Outcome outcome = slotMode
+                                ? engine.claimSlot(conn, userId, target)
+                                : engine.claimAppointment(conn, target, userId);
+                            record(outcome, target, userId);
+                        } catch (SQLException | RuntimeException e) {
+                            failures.increment();
+                        }
+                        latencies[recorded.getAndIncrement()] = System.nanoTime() - t0;
+                    }
+                    return null;
+                });
+            }
+            began = System.nanoTime();
+            start.countDown();
+        }
+        long elapsed = System.nanoTime() - began;
+
+        int count = recorded.get();
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf("throughput: %.0f req/s over %d ms%n", count / (elapsed / 1e9), elapsed / 1_000_000);
+        System.out.printf("latency: p50=%.2f ms p99=%.2f ms p999=%.2f ms max=%.2f ms%n",
+            percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999), percentile(sorted, 1.0));
+        System.out.printf("outcomes: booked=%d lostRace=%d conflict=%d failed=%d%n",
+            booked.sum(), lostRaces.sum(), conflicts.sum(), failures.sum());
+        for (BookingEngine engine : engines) {
+            System.out.println("  engine " + engine.stats());
+        }
+        System.out.println("pool " + DatabaseConnection.stats());
+        if (Metrics.ENABLED) System.out.println("metrics " + Metrics.summary());
+
+        int problems = (int) doubleBooked.sum();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            problems += slotMode ? verifySlots(conn) : verifyAppointments(conn);
+        }
+        System.out.println(problems == 0 ? "no double bookings" : "DOUBLE BOOKINGS / INCONSISTENCIES: " + problems);
+        DatabaseConnection.shutdown();
+        System.exit(problems == 0 ? 0 : 1);
+    }
+
+    private static int pickTarget() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int hot = Math.min(HOT_SLOTS, idCount);
+        if (hot > 0 && random.nextDouble() < HOT_SHARE) {
+            return firstId + random.nextInt(hot);
+        }
+        return firstId + random.nextInt(idCount);
+    }
+
+    private static void record(BookingEngine.Outcome outcome, int target, int userId) {
+        if (outcome == BookingEngine.Outcome.BOOKED) {
+            booked.increment();
+            Integer previous = winners.putIfAbsent(target, userId);
+            if (previous != null) {
+                doubleBooked.increment();
+                System.err.println("Double booking reported for " + target + ": users " + previous + " and " + userId);
+            }
+        } else if (outcome == BookingEngine.Outcome.CONFLICT) {
+            conflicts.increment();
+        } else {
+            lostRaces.increment();
+        }
+    }
+
+    // Every booked slot has exactly one appointment, held by the user that was told BOOKED
+    private static int verifySlots(Connection conn) throws SQLException {
+        int problems = 0;
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(
+                     "SELECT slot_id, COUNT(*) FROM appointment GROUP BY slot_id HAVING COUNT(*) > 1")) {
+                while (rs.next()) {
+                    System.err.println("Slot " + rs.getInt(1) + " has " + rs.getInt(2) + " appointments");
+                    problems++;
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                     "SELECT s.id, s.is_available, a.user_id FROM slot s LEFT JOIN appointment a ON a.slot_id = s.id")) {
+                while (rs.next()) {
+                    problems += check(rs.getInt(1), !rs.getBoolean(2), (Integer) rs.getObject(3));
+                }
+            }
+        }
+        return problems;
+    }
+
+    private static int verifyAppointments(Connection conn) throws SQLException {
+        int problems = 0;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, is_available, booked_by FROM appointments")) {
+            while (rs.next()) {
+                problems += check(rs.getInt(1), !rs.getBoolean(2), (Integer) rs.getObject(3));
+            }
+        }
+        return problems;
+    }
+
+    private static int check(int id, boolean taken, Integer holder) {
+        Integer winner = winners.get(id);
+        if (taken != (holder != null) || !Objects.equals(winner, holder)) {
+            System.err.println("Row " + id + ": taken=" + taken + " holder=" + holder + " reported winner=" + winner);
+            return 1;
+        }
+        return 0;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int i = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, i)] / 1e6;
+    }
+
+    private static void seedUsers(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO user (id, username, password) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < USERS; i++) {
+                stmt.setInt(1, i);
+                stmt.setString(2, "load-user-" + i);
+                stmt.setString(3, "-");
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+        // Ids are reused across runs with new names
+        Session.invalidateAll();
+    }
+
+    private static void seedSlots(Connection conn) throws SQLException {
+        int perDay = 40;
+        LocalDate from = LocalDate.now().plusDays(1);
+        LocalDate to = from.plusDays((SLOTS + perDay - 1) / perDay - 1);
+        SlotGenerator.ScheduleRule rule = new SlotGenerator.ScheduleRule(null, from, to,
+                LocalTime.of(8, 0), LocalTime.of(18, 0), Duration.ofMinutes(15))
+            .workingDays(EnumSet.allOf(DayOfWeek.class));
+        SlotGenerator.publish(conn, List.of(rule));
+        readIdRange(conn, "slot");
+    }
+
+    private static void seedAppointments(Connection conn) throws SQLException {
+        LocalDateTime first = LocalDate.now().plusDays(1).atTime(8, 0);
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO appointments (title, description, date_time, duration_minutes) VALUES (?, ?, ?, 30)")) {
+            for (int i = 0; i < SLOTS; i++) {
+                stmt.setString(1, "Load test " + i);
+                stmt.setString(2, "Generated by LoadGenerator");
+                stmt.setTimestamp(3, Timestamp.valueOf(first.plusMinutes(30L * i)));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+        readIdRange(conn, "appointments");
+    }
+
+    private static void readIdRange(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(id), COUNT(*) FROM " + table)) {
+            rs.next();
+            firstId = rs.getInt(1);
+            idCount = rs.getInt(2);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 import javafx.animation.FadeTransition;
 import javafx.application.Application;
-import javafx.beans.property.SimpleStringProperty;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.ListChangeListener;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -14,22 +15,31 @@ import javafx.stage.Stage;
 import javafx.util.Duration;
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 
 public class LoginApp extends Application {
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/appointment_system?useSSL=false";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "";
-
     private StackPane layout;
     private VBox loginLayout;
     private VBox registerLayout;
     private VBox welcomeLayout;
     private int loginAttempts = 0;
     private final int maxAttempts = 3;
+    private final BookingEngine bookingEngine = new BookingEngine(null);
+
+    // Demo rows are only inserted on request (-Dapp.seedDemoData=true) and only into an empty table
+    private static final boolean SEED_DEMO_DATA = Boolean.getBoolean("app.seedDemoData");
+    private static final int WARM_CONNECTIONS = 3;
+    // Formatters are immutable and thread-safe; one instance serves every cell
+    private static final DateTimeFormatter DISPLAY_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private static final Metrics.Timer USER_APPOINTMENTS_EXECUTE = Metrics.timer("user.appointments.execute");
+    private static final Metrics.Timer USER_APPOINTMENTS_MAP = Metrics.timer("user.appointments.map");
 
     public static void main(String[] args) {
         launch(args);
@@ -37,88 +47,76 @@ public class LoginApp extends Application {
 
     @Override
     public void start(Stage stage) {
+        long launched = System.nanoTime();
         System.out.println("=== Starting Application ===");
         
-        // Initialize database with sample data
-        initializeDatabase();
-        
-        // Verify data was inserted
-        verifyDataExists();
-        
-        // Create UI
+        // Create UI first; the database is prepared while the welcome screen shows
         createUI(stage);
         
         Scene scene = new Scene(layout, 600, 400);
         stage.setTitle("Appointment System Login");
         stage.setScene(scene);
         stage.show();
+        System.out.printf("Startup: first frame after %d ms%n", elapsedMs(launched));
+        
+        prepareDatabase(launched);
     }
 
-    private void initializeDatabase() {
-        System.out.println("Initializing database...");
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            
-            try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-                 Statement stmt = conn.createStatement()) {
-                
-                // Create tables if they don't exist
-                stmt.executeUpdate("CREATE TABLE IF NOT EXISTS user (" +
-                                 "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                                 "username VARCHAR(50) NOT NULL UNIQUE, " +
-                                 "password VARCHAR(100) NOT NULL)");
-                
-                stmt.executeUpdate("CREATE TABLE IF NOT EXISTS appointments (" +
-                                 "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                                 "title VARCHAR(100) NOT NULL, " +
-                                 "description TEXT, " +
-                                 "date_time DATETIME NOT NULL, " +
-                                 "duration_minutes INT NOT NULL, " +
-                                 "is_available BOOLEAN DEFAULT TRUE, " +
-                                 "booked_by INT NULL, " +
-                                 "FOREIGN KEY (booked_by) REFERENCES user(id))");
-                
-                // Clear any existing data
-                stmt.executeUpdate("DELETE FROM appointments");
-                
-                // Insert default appointments
-                stmt.executeUpdate("INSERT INTO appointments (title, description, date_time, duration_minutes) VALUES " +
-                                 "('Dental Checkup', 'Routine dental examination', NOW() + INTERVAL 1 DAY, 30), " +
-                                 "('Eye Examination', 'Complete vision test', NOW() + INTERVAL 2 DAY, 45), " +
-                                 "('Physical Therapy', 'Knee rehabilitation session', NOW() + INTERVAL 3 DAY, 60), " +
-                                 "('Vaccination', 'Annual flu shot', NOW() + INTERVAL 4 DAY, 15), " +
-                                 "('General Checkup', 'Annual health assessment', NOW() + INTERVAL 5 DAY, 30)");
-                
-                System.out.println("Successfully inserted 5 default appointments");
+    // Warm-up and schema check run in parallel; the availability cache is primed once the
+    // schema is known to be current. Nothing here deletes or rewrites existing rows.
+    private void prepareDatabase(long launched) {
+        CompletableFuture<Long> warmUp = AsyncDb.supply(conn -> {
+            long began = System.nanoTime();
+            DatabaseConnection.warmUp(WARM_CONNECTIONS);
+            return elapsedMs(began);
+        });
+        CompletableFuture<Long> schema = AsyncDb.supply(conn -> {
+            long began = System.nanoTime();
+            initializeDatabase(conn);
+            bookingEngine.loadAppointmentBookings(conn);
+            return elapsedMs(began);
+        });
+        CompletableFuture<Long> prime = schema.thenCompose(ignored -> {
+            long began = System.nanoTime();
+            return AvailabilityCache.available(AvailabilityCache.DateRange.ALL).thenApply(list -> elapsedMs(began));
+        });
+        
+        CompletableFuture.allOf(warmUp, prime).whenComplete((ignored, error) -> {
+            if (error != null) {
+                System.err.println("Error preparing database: " + AsyncDb.unwrap(error).getMessage());
+                Platform.runLater(() ->
+                    showAlert("Database Error", "Failed to initialize database. Check console for details."));
+                return;
             }
-        } catch (Exception e) {
-            System.err.println("Error initializing database: " + e.getMessage());
-            e.printStackTrace();
-            showAlert("Database Error", "Failed to initialize database. Check console for details.");
-        }
+            System.out.printf("Startup: warm-up %d ms, schema %d ms, priming %d ms, ready after %d ms%n",
+                warmUp.join(), schema.join(), prime.join(), elapsedMs(launched));
+        });
     }
 
-    private void verifyDataExists() {
-        System.out.println("Verifying data exists...");
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             Statement stmt = conn.createStatement();
+    private static long elapsedMs(long since) {
+        return (System.nanoTime() - since) / 1_000_000;
+    }
+
+    private static void initializeDatabase(Connection conn) throws SQLException {
+        // Create or upgrade tables
+        SchemaMigrations.migrate(conn);
+        SchemaMigrations.ensureLoginAppointments(conn);
+        
+        if (!SEED_DEMO_DATA) return;
+        try (Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM appointments")) {
-            
             rs.next();
-            int count = rs.getInt(1);
-            System.out.println("Found " + count + " appointments in database");
+            if (rs.getInt(1) > 0) return;
             
-            if (count == 0) {
-                System.err.println("ERROR: No appointments found after initialization!");
-            } else {
-                System.out.println("Sample appointments:");
-                ResultSet appointments = stmt.executeQuery("SELECT id, title FROM appointments");
-                while (appointments.next()) {
-                    System.out.println("- " + appointments.getInt("id") + ": " + appointments.getString("title"));
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error verifying data: " + e.getMessage());
+            // Insert default appointments into an empty table only
+            stmt.executeUpdate("INSERT INTO appointments (title, description, date_time, duration_minutes) VALUES " +
+                             "('Dental Checkup', 'Routine dental examination', NOW() + INTERVAL 1 DAY, 30), " +
+                             "('Eye Examination', 'Complete vision test', NOW() + INTERVAL 2 DAY, 45), " +
+                             "('Physical Therapy', 'Knee rehabilitation session', NOW() + INTERVAL 3 DAY, 60), " +
+                             "('Vaccination', 'Annual flu shot', NOW() + INTERVAL 4 DAY, 15), " +
+                             "('General Checkup', 'Annual health assessment', NOW() + INTERVAL 5 DAY, 30)");
+            
+            System.out.println("Successfully inserted 5 default appointments");
         }
     }
 
@@ -192,25 +190,30 @@ public class LoginApp extends Application {
     }
 
     private void handleLogin(Stage stage, TextField usernameField, PasswordField passwordField, Label loginMessage) {
+        String username = usernameField.getText();
+        String password = passwordField.getText();
         try {
-            String username = usernameField.getText();
-            String password = passwordField.getText();
-
             validateLoginInput(username, password);
-
-            Integer userId = authenticateUser(username, password);
-            if (userId != null) {
-                loginMessage.setText("✅ Login successful!");
-                loginAttempts = 0;
-                showMainApplication(stage, userId);
-            } else {
-                handleFailedLogin();
-            }
         } catch (IllegalArgumentException ex) {
             loginMessage.setText("Error: " + ex.getMessage());
-        } catch (Exception ex) {
-            loginMessage.setText("Unexpected error: " + ex.getMessage());
+            return;
         }
+
+        loginMessage.setText("Signing in...");
+        AsyncDb.deliver(CredentialService.login(username, password), account -> {
+            try {
+                if (account != null) {
+                    loginMessage.setText("✅ Login successful!");
+                    loginAttempts = 0;
+                    Session.begin(account);
+                    showMainApplication(stage, account.id);
+                } else {
+                    handleFailedLogin();
+                }
+            } catch (IllegalArgumentException ex) {
+                loginMessage.setText("Error: " + ex.getMessage());
+            }
+        }, ex -> loginMessage.setText("Unexpected error: " + ex.getMessage()));
     }
 
     private void validateLoginInput(String username, String password) {
@@ -250,63 +253,21 @@ public class LoginApp extends Application {
     }
 
     private void handleRegistration(TextField registerUsername, PasswordField registerPassword, Label registerMessage) {
-        try {
-            String user = registerUsername.getText();
-            String pass = registerPassword.getText();
+        String user = registerUsername.getText();
+        String pass = registerPassword.getText();
 
-            if (user.isEmpty() || pass.isEmpty()) {
-                throw new IllegalArgumentException("Username or password cannot be empty");
-            }
+        if (user.isEmpty() || pass.isEmpty()) {
+            registerMessage.setText("Error: Username or password cannot be empty");
+            return;
+        }
 
-            boolean success = registerUser(user, pass);
+        AsyncDb.deliver(CredentialService.register(user, pass), success -> {
             if (success) {
                 registerMessage.setText("✅ Account created successfully!");
             } else {
-                throw new IllegalArgumentException("⚠️ User already exists.");
-            }
-        } catch (IllegalArgumentException ex) {
-            registerMessage.setText("Error: " + ex.getMessage());
-        } catch (Exception ex) {
-            registerMessage.setText("Unexpected error: " + ex.getMessage());
-        }
-    }
-
-    private Integer authenticateUser(String username, String password) {
-        String sql = "SELECT id FROM user WHERE username = ? AND password = ?";
-        
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, username);
-            pstmt.setString(2, password);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next() ? rs.getInt("id") : null;
-            }
-        } catch (SQLException e) {
-            System.err.println("Authentication error: " + e.getMessage());
-            return null;
-        }
-    }
-
-    private boolean registerUser(String username, String password) {
-        String sql = "INSERT INTO user (username, password) VALUES (?, ?)";
-        
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, username);
-            pstmt.setString(2, password);
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            if (e.getErrorCode() == 1062) {
-                return false;
+                registerMessage.setText("Error: ⚠️ User already exists.");
             }
-            System.err.println("Registration error: " + e.getMessage());
-            return false;
-        }
+        }, ex -> registerMessage.setText("Unexpected error: " + ex.getMessage()));
     }
 
     private void showMainApplication(Stage stage, int userId) {
@@ -317,31 +278,38 @@ public class LoginApp extends Application {
         welcomeLabel.setFont(Font.font(24));
         
         TableView<Appointment> appointmentTable = createAppointmentTable();
-        
-        // Load and display appointments
-        List<Appointment> appointments = getAvailableAppointments();
-        System.out.println("Displaying " + appointments.size() + " appointments");
-        appointmentTable.getItems().addAll(appointments);
+        AsyncDb.Latest<List<Appointment>> loader = new AsyncDb.Latest<>();
         
         // Refresh button
         Button refreshButton = new Button("Refresh Appointments");
-        refreshButton.setOnAction(e -> {
-            appointmentTable.getItems().clear();
-            appointmentTable.getItems().addAll(getAvailableAppointments());
-        });
+        refreshButton.setOnAction(e -> loadInto(appointmentTable, loader,
+            AvailabilityCache.available(AvailabilityCache.DateRange.ALL)));
+        
+        // Load and display appointments; served from the cache primed at startup when still fresh
+        refreshButton.fire();
         
         // Appointment booking button
         Button bookButton = new Button("Book Selected Appointment");
         bookButton.setOnAction(e -> {
             Appointment selected = appointmentTable.getSelectionModel().getSelectedItem();
             if (selected != null && selected.isAvailable()) {
-                boolean success = bookAppointment(selected.getId(), userId);
-                if (success) {
-                    showAlert("Success", "Appointment booked successfully!");
+                bookButton.setDisable(true);
+                AsyncDb.run(conn -> bookingEngine.claimAppointment(conn, selected.getId(), userId), outcome -> {
+                    bookButton.setDisable(false);
+                    // Either way the cached list showed this appointment as free, which is now wrong
+                    AvailabilityCache.invalidate(selected.getDateTime());
+                    if (outcome == BookingEngine.Outcome.BOOKED) {
+                        showAlert("Success", "Appointment booked successfully!");
+                    } else if (outcome == BookingEngine.Outcome.CONFLICT) {
+                        showAlert("Error", "This appointment overlaps one you have already booked");
+                    } else {
+                        showAlert("Error", "This appointment has already been booked");
+                    }
                     refreshButton.fire(); // Refresh the table
-                } else {
-                    showAlert("Error", "Failed to book appointment");
-                }
+                }, ex -> {
+                    bookButton.setDisable(false);
+                    showAlert("Error", "Failed to book appointment: " + ex.getMessage());
+                });
             } else {
                 showAlert("Error", "Please select an available appointment");
             }
@@ -349,35 +317,49 @@ public class LoginApp extends Application {
         
         // Other navigation buttons
         Button viewBookedButton = new Button("View My Appointments");
-        viewBookedButton.setOnAction(e -> showUserAppointments(stage, userId));
+        viewBookedButton.setOnAction(e -> {
+            loader.cancel();
+            showUserAppointments(stage, userId);
+        });
         
         Button logoutButton = new Button("Logout");
-        logoutButton.setOnAction(e -> stage.setScene(new Scene(layout, 600, 400)));
+        logoutButton.setOnAction(e -> {
+            loader.cancel();
+            Session.end();
+            stage.setScene(new Scene(layout, 600, 400));
+        });
         
         // Debug button
         Button debugButton = new Button("Debug Info");
         debugButton.setOnAction(e -> {
             System.out.println("=== DEBUG INFORMATION ===");
-            System.out.println("Database URL: " + DB_URL);
+            System.out.println("Database URL: " + DatabaseConnection.getUrl());
+            System.out.println("Connection pool: " + DatabaseConnection.stats());
+            System.out.println("Session cache: " + Session.stats());
+            System.out.println("Availability cache: " + AvailabilityCache.stats());
+            if (Metrics.ENABLED) System.out.println("Metrics: " + Metrics.summary());
             System.out.println("Current User ID: " + userId);
             
-            try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-                 Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery("SELECT * FROM appointments")) {
-                
-                System.out.println("All appointments in database:");
-                while (rs.next()) {
-                    System.out.printf("- ID: %d, Title: %s, Available: %b%n",
-                        rs.getInt("id"),
-                        rs.getString("title"),
-                        rs.getBoolean("is_available"));
+            AsyncDb.supply(conn -> {
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT * FROM appointments")) {
+                    
+                    System.out.println("All appointments in database:");
+                    while (rs.next()) {
+                        System.out.printf("- ID: %d, Title: %s, Available: %b%n",
+                            rs.getInt("id"),
+                            rs.getString("title"),
+                            rs.getBoolean("is_available"));
+                    }
                 }
-            } catch (SQLException ex) {
-                System.err.println("Debug query failed: " + ex.getMessage());
-            }
+                return null;
+            }).exceptionally(ex -> {
+                System.err.println("Debug query failed: " + AsyncDb.unwrap(ex).getMessage());
+                return null;
+            });
         });
         
-        HBox buttonBox = new HBox(10, bookButton, refreshButton, viewBookedButton, debugButton, logoutButton);
+        HBox buttonBox = new HBox(10, bookButton, refreshButton, viewBookedButton, debugButton, logoutButton, busyIndicator());
         buttonBox.setAlignment(Pos.CENTER);
         
         mainLayout.getChildren().addAll(welcomeLabel, appointmentTable, buttonBox);
@@ -395,17 +377,11 @@ public class LoginApp extends Application {
         TableColumn<Appointment, String> titleCol = new TableColumn<>("Title");
         titleCol.setCellValueFactory(new PropertyValueFactory<>("title"));
         
-        TableColumn<Appointment, String> dateCol = new TableColumn<>("Date & Time");
-        dateCol.setCellValueFactory(cell -> 
-            new SimpleStringProperty(cell.getValue().getDateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"))));
-        
-        TableColumn<Appointment, String> durationCol = new TableColumn<>("Duration");
-        durationCol.setCellValueFactory(cell -> 
-            new SimpleStringProperty(cell.getValue().getDuration() + " mins"));
-        
-        TableColumn<Appointment, String> statusCol = new TableColumn<>("Status");
-        statusCol.setCellValueFactory(cell -> 
-            new SimpleStringProperty(cell.getValue().isAvailable() ? "Available" : "Booked"));
+        TableColumn<Appointment, Appointment> dateCol = textColumn("Date & Time",
+            row -> DISPLAY_TIME.format(row.getDateTime()));
+        TableColumn<Appointment, Appointment> durationCol = textColumn("Duration",
+            row -> row.getDuration() + " mins");
+        TableColumn<Appointment, Appointment> statusCol = textColumn("Status", Appointment::getStatus);
         
         table.getColumns().addAll(idCol, titleCol, dateCol, durationCol, statusCol);
         table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
@@ -413,45 +389,28 @@ public class LoginApp extends Application {
         return table;
     }
 
-    private List<Appointment> getAvailableAppointments() {
-        List<Appointment> appointments = new ArrayList<>();
-        
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM appointments WHERE is_available = TRUE")) {
-            
-            while (rs.next()) {
-                appointments.add(new Appointment(
-                    rs.getInt("id"),
-                    rs.getString("title"),
-                    rs.getString("description"),
-                    rs.getTimestamp("date_time").toLocalDateTime(),
-                    rs.getInt("duration_minutes"),
-                    rs.getBoolean("is_available")
-                ));
+    // The cell value is the row itself and the text is built in updateItem, so a cell only
+    // formats when it is given a different row, not on every layout pass
+    private static TableColumn<Appointment, Appointment> textColumn(String title, Function<Appointment, String> text) {
+        TableColumn<Appointment, Appointment> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue()));
+        column.setCellFactory(c -> new TableCell<>() {
+            @Override
+            protected void updateItem(Appointment row, boolean empty) {
+                super.updateItem(row, empty);
+                setText(empty || row == null ? null : text.apply(row));
             }
-        } catch (SQLException e) {
-            System.err.println("Error fetching appointments: " + e.getMessage());
-        }
-        
-        return appointments;
+        });
+        return column;
     }
 
-    private boolean bookAppointment(int appointmentId, int userId) {
-        String sql = "UPDATE appointments SET is_available = FALSE, booked_by = ? WHERE id = ? AND is_available = TRUE";
-        
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, userId);
-            pstmt.setInt(2, appointmentId);
-            
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            System.err.println("Error booking appointment: " + e.getMessage());
-            return false;
-        }
+    // Replaces the table contents once the query finishes; a newer load supersedes this one
+    private void loadInto(TableView<Appointment> table, AsyncDb.Latest<List<Appointment>> loader, CompletableFuture<List<Appointment>> query) {
+        table.setPlaceholder(new Label("Loading..."));
+        loader.submit(query, appointments -> {
+            System.out.println("Displaying " + appointments.size() + " appointments");
+            table.getItems().setAll(appointments);
+        }, AsyncDb::logError);
     }
 
     private void showUserAppointments(Stage stage, int userId) {
@@ -462,39 +421,70 @@ public class LoginApp extends Application {
         titleLabel.setFont(Font.font(24));
         
         TableView<Appointment> appointmentTable = createAppointmentTable();
-        appointmentTable.getItems().addAll(getUserAppointments(userId));
+        AsyncDb.Latest<List<Appointment>> loader = new AsyncDb.Latest<>();
+        loadInto(appointmentTable, loader, AsyncDb.supply(conn -> getUserAppointments(conn, userId)));
+        
+        // Frees the appointment for others; the cached availability of its day is dropped
+        Button cancelButton = new Button("Cancel Selected Appointment");
+        cancelButton.setOnAction(e -> {
+            Appointment selected = appointmentTable.getSelectionModel().getSelectedItem();
+            if (selected == null) {
+                showAlert("Error", "Please select an appointment to cancel");
+                return;
+            }
+            cancelButton.setDisable(true);
+            AsyncDb.run(conn -> bookingEngine.cancelAppointment(conn, selected.getId(), userId), cancelled -> {
+                cancelButton.setDisable(false);
+                AvailabilityCache.invalidate(selected.getDateTime());
+                if (!cancelled) {
+                    showAlert("Error", "This appointment is no longer booked by you");
+                }
+                loadInto(appointmentTable, loader, AsyncDb.supply(conn -> getUserAppointments(conn, userId)));
+            }, ex -> {
+                cancelButton.setDisable(false);
+                showAlert("Error", "Failed to cancel appointment: " + ex.getMessage());
+            });
+        });
         
         Button backButton = new Button("Back to Available Appointments");
-        backButton.setOnAction(e -> showMainApplication(stage, userId));
+        backButton.setOnAction(e -> {
+            loader.cancel();
+            showMainApplication(stage, userId);
+        });
+        
+        HBox buttonBox = new HBox(10, cancelButton, backButton, busyIndicator());
+        buttonBox.setAlignment(Pos.CENTER);
         
-        layout.getChildren().addAll(titleLabel, appointmentTable, backButton);
+        layout.getChildren().addAll(titleLabel, appointmentTable, buttonBox);
         layout.setAlignment(Pos.CENTER);
         
         stage.setScene(new Scene(layout, 800, 600));
     }
 
-    private List<Appointment> getUserAppointments(int userId) {
+    // Errors go to the loader, which reports them like every other query on this page
+    private static List<Appointment> getUserAppointments(Connection conn, int userId) throws SQLException {
         List<Appointment> appointments = new ArrayList<>();
-        String sql = "SELECT * FROM appointments WHERE booked_by = ?";
+        String sql = "SELECT * FROM appointments WHERE booked_by = ? ORDER BY date_time";
         
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                appointments.add(new Appointment(
-                    rs.getInt("id"),
-                    rs.getString("title"),
-                    rs.getString("description"),
-                    rs.getTimestamp("date_time").toLocalDateTime(),
-                    rs.getInt("duration_minutes"),
-                    false
-                ));
+            long t = Metrics.start();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                t = USER_APPOINTMENTS_EXECUTE.stop(t);
+                
+                while (rs.next()) {
+                    appointments.add(new Appointment(
+                        rs.getInt("id"),
+                        rs.getString("title"),
+                        rs.getString("description"),
+                        rs.getTimestamp("date_time").toLocalDateTime(),
+                        rs.getInt("duration_minutes"),
+                        false
+                    ));
+                }
             }
-        } catch (SQLException e) {
-            System.err.println("Error fetching user appointments: " + e.getMessage());
+            USER_APPOINTMENTS_MAP.stop(t);
         }
         return appointments;
     }
@@ -517,6 +507,14 @@ public class LoginApp extends Application {
         alert.showAndWait();
     }
 
+    // Spinner shown while any background query is running
+    private ProgressIndicator busyIndicator() {
+        ProgressIndicator indicator = new ProgressIndicator();
+        indicator.setPrefSize(20, 20);
+        indicator.visibleProperty().bind(AsyncDb.busyProperty());
+        return indicator;
+    }
+
     private void styleButton(Button button, String normalColor, String hoverColor) {
         button.setStyle("-fx-font-size: 16px; -fx-background-color: " + normalColor + "; -fx-text-fill: white;");
         button.setPadding(new Insets(10, 20, 10, 20));
@@ -524,11 +522,13 @@ public class LoginApp extends Application {
         button.setOnMouseExited(e -> button.setStyle("-fx-font-size: 16px; -fx-background-color: " + normalColor + "; -fx-text-fill: white;"));
     }
 
+    // Immutable row; the start is kept as local epoch seconds rather than a LocalDateTime
+    // (three objects), and is only turned back into one when asked for
     public static class Appointment {
         private final int id;
         private final String title;
         private final String description;
-        private final LocalDateTime dateTime;
+        private final long startEpochSecond;
         private final int duration;
         private final boolean isAvailable;
         
@@ -536,7 +536,7 @@ public class LoginApp extends Application {
             this.id = id;
             this.title = title;
             this.description = description;
-            this.dateTime = dateTime;
+            this.startEpochSecond = dateTime.toEpochSecond(ZoneOffset.UTC);
             this.duration = duration;
             this.isAvailable = isAvailable;
         }
@@ -544,8 +544,9 @@ public class LoginApp extends Application {
         public int getId() { return id; }
         public String getTitle() { return title; }
         public String getDescription() { return description; }
-        public LocalDateTime getDateTime() { return dateTime; }
+        public LocalDateTime getDateTime() { return LocalDateTime.ofEpochSecond(startEpochSecond, 0, ZoneOffset.UTC); }
         public int getDuration() { return duration; }
         public boolean isAvailable() { return isAvailable; }
+        public String getStatus() { return isAvailable ? "Available" : "Booked"; }
     }
 }
\ No newline at end of file
@@ -0,0 +1,189 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Latency timers for the JDBC hot paths: connection checkout, named queries and
+// row mapping. Off unless -Dmetrics.enabled=true. ENABLED is read once at class
+// initialisation, not at compile time, so javac keeps the checks; once the JIT
+// compiles a caller it treats the static final as a constant and drops the
+// disabled branches, and until then each call costs a field read. When on,
+// each timer is exported over JMX and all of them are logged every metrics.logSeconds.
+//
+// Timing a query and its mapping separately:
+//   long t = Metrics.start();
+//   try (ResultSet rs = stmt.executeQuery()) {
+//       t = EXECUTE.stop(t);
+//       while (rs.next()) { ... }
+//   }
+//   MAP.stop(t);
+public class Metrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("metrics.enabled");
+    private static final long LOG_SECONDS = Long.getLong("metrics.logSeconds", 60);
+
+    // Log-linear buckets as in HdrHistogram: 2^SUB_BITS buckets per power of two,
+    // so a recorded value is off by at most 1/32 (about 3%)
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB + (64 - SUB_BITS) * SUB;
+
+    private static final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+
+    static {
+        if (ENABLED && LOG_SECONDS > 0) {
+            ScheduledExecutorService logger = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metrics-log");
+                t.setDaemon(true);
+                return t;
+            });
+            logger.scheduleAtFixedRate(() -> {
+                String line = summary();
+                if (!line.isEmpty()) System.out.println("metrics " + line);
+            }, LOG_SECONDS, LOG_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    public interface TimerMXBean {
+        long getCount();
+        double getMeanMillis();
+        double getP50Millis();
+        double getP99Millis();
+        double getP999Millis();
+        double getMaxMillis();
+    }
+
+    public static final class Timer implements TimerMXBean {
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(ENABLED ? BUCKETS : 0);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Timer(String name) {
+            this.name = name;
+        }
+
+        // Records the time since start and returns now, so consecutive phases can be chained
+        public long stop(long start) {
+            if (!ENABLED) return 0;
+            long now = System.nanoTime();
+            record(now - start);
+            return now;
+        }
+
+        // Records when the future completes, successfully or not
+        public <T> CompletableFuture<T> stopWhenDone(CompletableFuture<T> future, long start) {
+            if (!ENABLED) return future;
+            return future.whenComplete((value, error) -> stop(start));
+        }
+
+        public void record(long nanos) {
+            if (!ENABLED) return;
+            long value = Math.max(0, nanos);
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            totalNanos.add(value);
+            long max;
+            while (value > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, value)) {
+                // retry until the larger value sticks
+            }
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / (double) n / 1e6;
+        }
+
+        public double getP50Millis() {
+            return percentile(0.50) / 1e6;
+        }
+
+        public double getP99Millis() {
+            return percentile(0.99) / 1e6;
+        }
+
+        public double getP999Millis() {
+            return percentile(0.999) / 1e6;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        // Upper bound of the bucket holding the p-th value, capped at the observed max
+        long percentile(double p) {
+            long n = 0;
+            for (int i = 0; i < buckets.length(); i++) n += buckets.get(i);
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p * n));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) return Math.min(highestIn(i), maxNanos.get());
+            }
+            return maxNanos.get();
+        }
+
+        String summary() {
+            return String.format("%s n=%d p50=%.3f p99=%.3f p999=%.3f max=%.3f ms", name, getCount(),
+                getP50Millis(), getP99Millis(), getP999Millis(), getMaxMillis());
+        }
+    }
+
+    // One instance per name; call sites keep it in a static final field
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, key -> {
+            Timer timer = new Timer(key);
+            if (ENABLED) register(timer);
+            return timer;
+        });
+    }
+
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public static String summary() {
+        StringJoiner line = new StringJoiner("; ");
+        for (Timer timer : timers.values()) {
+            if (timer.getCount() > 0) line.add(timer.summary());
+        }
+        return line.toString();
+    }
+
+    static int bucket(long value) {
+        if (value < SUB) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return SUB + shift * SUB + (int) (value >>> shift) - SUB;
+    }
+
+    static long highestIn(int bucket) {
+        if (bucket < SUB) return bucket;
+        int shift = (bucket - SUB) / SUB;
+        long lowest = (long) (SUB + (bucket - SUB) % SUB) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    private static void register(Timer timer) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(timer,
+                new ObjectName("BookingSystem:type=Metrics,name=" + timer.name));
+        } catch (JMException e) {
+            System.err.println("Could not export metric " + timer.name + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Asynchronous read-through cache with a TTL. Concurrent misses on one key share a
+// single load (single flight), so a burst of refreshes costs one query. Callers get
+// their own copy of the future: cancelling it never cancels the shared load.
+public class ReadThroughCache<K, V> {
+
+    private static final class Entry<V> {
+        final CompletableFuture<V> value;
+        volatile long loadedAt;
+
+        Entry(CompletableFuture<V> value) {
+            this.value = value;
+        }
+    }
+
+    private final String name;
+    private final long ttlNanos;
+    private final Function<K, CompletableFuture<V>> loader;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ReadThroughCache(String name, long ttlMillis, Function<K, CompletableFuture<V>> loader) {
+        this.name = name;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.loader = loader;
+    }
+
+    public CompletableFuture<V> get(K key) {
+        Entry<V> created = null;
+        Entry<V> entry;
+        while (true) {
+            entry = entries.get(key);
+            if (entry != null && !isExpired(entry)) {
+                (entry.value.isDone() ? hits : coalesced).increment();
+                return entry.value.copy();
+            }
+            created = new Entry<>(new CompletableFuture<>());
+            boolean won = entry == null
+                ? entries.putIfAbsent(key, created) == null
+                : entries.replace(key, entry, created);
+            if (won) break;
+        }
+
+        misses.increment();
+        Entry<V> loading = created;
+        CompletableFuture<V> load;
+        try {
+            load = loader.apply(key);
+        } catch (RuntimeException e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+        load.whenComplete((value, error) -> {
+            if (error != null) {
+                // Failures are not cached; the next caller tries again
+                entries.remove(key, loading);
+                loading.value.completeExceptionally(error);
+            } else {
+                loading.loadedAt = System.nanoTime();
+                loading.value.complete(value);
+            }
+        });
+        return loading.value.copy();
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return entry.value.isDone() && System.nanoTime() - entry.loadedAt > ttlNanos;
+    }
+
+    // A load already in flight for an invalidated key still completes for its waiters but is not kept
+    public void invalidate(K key) {
+        if (entries.remove(key) != null) invalidations.increment();
+    }
+
+    public void invalidateIf(Predicate<K> affected) {
+        entries.keySet().removeIf(key -> {
+            if (!affected.test(key)) return false;
+            invalidations.increment();
+            return true;
+        });
+    }
+
+    public void invalidateAll() {
+        invalidateIf(key -> true);
+    }
+
+    // Share of lookups answered without starting a load; joining an in-flight load counts as a hit
+    public double hitRatio() {
+        long answered = hits.sum() + coalesced.sum();
+        long total = answered + misses.sum();
+        return total == 0 ? 0 : (double) answered / total;
+    }
+
+    public String stats() {
+        return String.format("%s: entries=%d hits=%d coalesced=%d misses=%d invalidations=%d hitRatio=%.2f",
+            name, entries.size(), hits.sum(), coalesced.sum(), misses.sum(), invalidations.sum(), hitRatio());
+    }
+}
@@ -0,0 +1,85 @@
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.function.IntFunction;
+
+// Retained heap per table row, before and after the compact row models. Strings are
+// built per row, as a JDBC driver does for every getString, so the old model pays
+// for them the way it did when loaded from the database.
+//
+// Usage: java -cp out:javafx-base.jar:javafx-graphics.jar:javafx-controls.jar RowFootprint [rows]
+public class RowFootprint {
+
+    // The property-per-field model rows used to be
+    static final class PropertyAppointment {
+        final IntegerProperty appointmentId;
+        final IntegerProperty userId;
+        final StringProperty date;
+        final StringProperty time;
+        final StringProperty status;
+
+        PropertyAppointment(int appointmentId, int userId, String date, String time, String status) {
+            this.appointmentId = new SimpleIntegerProperty(appointmentId);
+            this.userId = new SimpleIntegerProperty(userId);
+            this.date = new SimpleStringProperty(date);
+            this.time = new SimpleStringProperty(time);
+            this.status = new SimpleStringProperty(status);
+        }
+    }
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        System.out.printf("%-32s %12s %10s%n", "Row model", "Retained", "Bytes/row");
+        measure("Appointment (properties)", rows, i ->
+            new PropertyAppointment(i, i % 500, date(i), time(i), new String("Booked")));
+        measure("Appointment (compact)", rows, i ->
+            new Appointment(i, i % 500, date(i), time(i), new String("Booked")));
+        measure("LoginApp.Appointment", rows, i ->
+            new LoginApp.Appointment(i, new String("Consultation"), null,
+                LocalDateTime.of(FIRST_DAY.plusDays(i / 40), LocalTime.ofSecondOfDay(i % 40 * 900L + 28_800)),
+                30, i % 3 != 0));
+    }
+
+    private static String date(int i) {
+        return FIRST_DAY.plusDays(i / 40).toString();
+    }
+
+    private static String time(int i) {
+        int second = i % 40 * 900 + 28_800;
+        return String.format("%02d:%02d:%02d", second / 3600, second / 60 % 60, second % 60);
+    }
+
+    private static void measure(String name, int rows, IntFunction<Object> row) {
+        Object[] held = new Object[rows];
+        long before = usedAfterGc();
+        for (int i = 0; i < rows; i++) {
+            held[i] = row.apply(i);
+        }
+        long after = usedAfterGc();
+        System.out.printf("%-32s %9d KB %10.1f%n", name, (after - before) / 1024, (after - before) / (double) rows);
+        // Keep the rows reachable until measured
+        if (held[rows - 1] == null) throw new IllegalStateException();
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // A few rounds until the number settles
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,348 @@
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Versioned schema for every entry point. Applied versions are recorded in
+// schema_version, so a startup against a current database costs one SELECT and
+// runs no DDL. Each step checks the catalog before changing anything, which keeps
+// databases created by older builds safe. Instances migrating at once are serialised
+// by a MySQL named lock (a JVM lock on embedded databases); the winner applies the
+// pending steps and the others find the schema current once they get the lock.
+public class SchemaMigrations {
+
+    interface Step {
+        void apply(Connection conn, Statement stmt) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    // Append only: never edit a migration that has shipped
+    private static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "base tables", (conn, stmt) -> {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS user (" +
+                             "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                             "username VARCHAR(50) NOT NULL UNIQUE, " +
+                             "password VARCHAR(100) NOT NULL, " +
+                             "is_admin BOOLEAN DEFAULT FALSE)");
+
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS slot (" +
+                             "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                             "provider_id INT NULL, " +
+                             "start_time DATETIME NOT NULL, " +
+                             "end_time DATETIME NOT NULL, " +
+                             "is_available BOOLEAN DEFAULT TRUE)");
+
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS appointment (" +
+                             "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                             "user_id INT NOT NULL, " +
+                             "slot_id INT NOT NULL, " +
+                             "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                             "FOREIGN KEY (user_id) REFERENCES user(id), " +
+                             "FOREIGN KEY (slot_id) REFERENCES slot(id))");
+            // appointments has two layouts, one per entry point; each creates its own with
+            // ensureLoginAppointments or ensureAdminAppointments
+        }),
+        // Databases created by LoginApp or before slots had a provider
+        new Migration(2, "user.is_admin and slot.provider_id", (conn, stmt) -> {
+            if (!columnExists(conn, "user", "is_admin")) {
+                stmt.executeUpdate("ALTER TABLE user ADD COLUMN is_admin BOOLEAN DEFAULT FALSE");
+            }
+            if (!columnExists(conn, "slot", "provider_id")) {
+                stmt.executeUpdate("ALTER TABLE slot ADD COLUMN provider_id INT NULL");
+            }
+        }),
+        new Migration(3, "change tracking", (conn, stmt) -> {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS row_tombstone (" +
+                             "table_name VARCHAR(32) NOT NULL, " +
+                             "row_id INT NOT NULL, " +
+                             "ref_id INT NULL, " +
+                             "deleted_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+                             "PRIMARY KEY (table_name, row_id), " +
+                             "INDEX idx_tombstone_deleted_at (table_name, deleted_at))");
+            for (String table : new String[] { "slot", "appointment", "appointments" }) {
+                if (tableExists(conn, table) && !columnExists(conn, table, "updated_at")) {
+                    stmt.executeUpdate("ALTER TABLE " + table + " " +
+                        "ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)");
+                }
+                createIndex(conn, stmt, table, "idx_" + table + "_updated_at", "updated_at", false);
+            }
+        }),
+        new Migration(4, "indexes for availability and booking lookups", (conn, stmt) -> {
+            // Open slots in time order, and the time-ordered scans of the index load and admin pages
+            createIndex(conn, stmt, "slot", "idx_slot_available_start", "is_available, start_time", false);
+            createIndex(conn, stmt, "slot", "idx_slot_start", "start_time, id", false);
+            // At most one booking per slot; also the lookup behind the claimed flag. Older builds
+            // could double-book a slot, and the index cannot be built until those are resolved.
+            if (!indexExists(conn, "appointment", "uq_appointment_slot")) {
+                resolveDuplicateBookings(conn, stmt);
+            }
+            createIndex(conn, stmt, "appointment", "uq_appointment_slot", "slot_id", true);
+            // Only the LoginApp layout of appointments has these columns
+            if (columnExists(conn, "appointments", "booked_by")) {
+                createIndex(conn, stmt, "appointments", "idx_appointments_booked_by", "booked_by, date_time", false);
+                createIndex(conn, stmt, "appointments", "idx_appointments_available", "is_available, date_time", false);
+            }
+            // AdminAppointmentPage layout, sought on (date, time, appointment_id)
+            if (columnExists(conn, "appointments", "appointment_id")) {
+                createIndex(conn, stmt, "appointments", "idx_appointments_date_time", "date, time, appointment_id", false);
+            }
+        }),
+        // Users waiting for a booked slot, served in id order
+        new Migration(5, "slot waitlist", (conn, stmt) -> {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS slot_waitlist (" +
+                             "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                             "slot_id INT NOT NULL, " +
+                             "user_id INT NOT NULL, " +
+                             "created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+                             "UNIQUE KEY uq_waitlist_slot_user (slot_id, user_id), " +
+                             "INDEX idx_waitlist_slot (slot_id, id), " +
+                             "FOREIGN KEY (slot_id) REFERENCES slot(id) ON DELETE CASCADE, " +
+                             "FOREIGN KEY (user_id) REFERENCES user(id) ON DELETE CASCADE)");
+        }),
+        // AdminAppointmentPage layout: each visit's own length, and the per-user lookup its overlap check locks
+        new Migration(6, "admin appointment duration", (conn, stmt) -> {
+            if (!columnExists(conn, "appointments", "appointment_id")) return;
+            if (!columnExists(conn, "appointments", "duration_minutes")) {
+                stmt.executeUpdate("ALTER TABLE appointments ADD COLUMN duration_minutes INT NOT NULL DEFAULT " +
+                                 AdminAppointmentPage.DEFAULT_MINUTES);
+            }
+            createIndex(conn, stmt, "appointments", "idx_appointments_user_date", "user_id, date, time", false);
+        })
+    );
+
+    private static final String LOCK_NAME = "schema_migrations";
+    private static final int LOCK_TIMEOUT_SECONDS = Integer.getInteger("schema.lockTimeoutSeconds", 120);
+
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    // Brings the schema up to date; returns the number of migrations applied
+    public static int migrate(Connection conn) throws SQLException {
+        if (currentVersion(conn) >= latestVersion()) {
+            return 0;
+        }
+        synchronized (SchemaMigrations.class) {
+            boolean locked = lock(conn);
+            try {
+                return applyPending(conn);
+            } finally {
+                if (locked) unlock(conn);
+            }
+        }
+    }
+
+    // Runs with the migration lock held; another instance may have finished meanwhile
+    private static int applyPending(Connection conn) throws SQLException {
+        int current = currentVersion(conn);
+        if (current >= latestVersion()) {
+            return 0;
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version (" +
+                             "version INT PRIMARY KEY, " +
+                             "description VARCHAR(200) NOT NULL, " +
+                             "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+
+            int applied = 0;
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version <= current) continue;
+                long started = System.nanoTime();
+                // MySQL commits DDL implicitly, so each step is recorded as soon as it succeeds
+                migration.step.apply(conn, stmt);
+                try (PreparedStatement record = conn.prepareStatement(
+                         "INSERT IGNORE INTO schema_version (version, description) VALUES (?, ?)")) {
+                    record.setInt(1, migration.version);
+                    record.setString(2, migration.description);
+                    record.executeUpdate();
+                }
+                applied++;
+                System.out.printf("Applied schema version %d (%s) in %d ms%n", migration.version,
+                    migration.description, (System.nanoTime() - started) / 1_000_000);
+            }
+            return applied;
+        }
+    }
+
+    // A named lock belongs to the session, so it survives the implicit commits of DDL.
+    // Other databases here are embedded and used by one process, covered by the JVM lock.
+    private static boolean lock(Connection conn) throws SQLException {
+        String product = conn.getMetaData().getDatabaseProductName();
+        if (!product.contains("MySQL") && !product.contains("MariaDB")) return false;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next() && rs.getInt(1) == 1) return true;
+            }
+        }
+        throw new SQLException("Timed out after " + LOCK_TIMEOUT_SECONDS + " s waiting for another instance to migrate the schema");
+    }
+
+    private static void unlock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            // Released anyway when the session ends
+            System.err.println("Failed to release the schema migration lock: " + e.getMessage());
+        }
+    }
+
+    public static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        } catch (SQLException e) {
+            // Only a brand-new or pre-migration database lacks schema_version
+            if (!tableExists(conn, "schema_version")) return 0;
+            throw e;
+        }
+    }
+
+    static boolean tableExists(Connection conn, String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getTables(conn.getCatalog(), null, table, null)) {
+            return rs.next();
+        }
+    }
+
+    static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    static boolean indexExists(Connection conn, String table, String index) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, table, false, true)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) return true;
+            }
+        }
+        return false;
+    }
+
+    // Keeps the earliest booking of each slot and moves the later ones to appointment_duplicate,
+    // where an admin can review them and contact the users; each one is reported on stderr.
+    private static void resolveDuplicateBookings(Connection conn, Statement stmt) throws SQLException {
+        Map<Integer, Integer> duplicates = new LinkedHashMap<>();
+        try (ResultSet rs = stmt.executeQuery(
+                 "SELECT a.id, a.slot_id, a.user_id FROM appointment a " +
+                 "WHERE EXISTS (SELECT 1 FROM appointment b WHERE b.slot_id = a.slot_id AND b.id < a.id) ORDER BY a.id")) {
+            while (rs.next()) {
+                duplicates.put(rs.getInt("id"), rs.getInt("slot_id"));
+                System.err.printf("Duplicate booking %d of slot %d by user %d moved to appointment_duplicate%n",
+                    rs.getInt("id"), rs.getInt("slot_id"), rs.getInt("user_id"));
+            }
+        }
+        if (duplicates.isEmpty()) return;
+
+        stmt.executeUpdate("CREATE TABLE IF NOT EXISTS appointment_duplicate (" +
+                         "id INT PRIMARY KEY, " +
+                         "user_id INT NOT NULL, " +
+                         "slot_id INT NOT NULL, " +
+                         "created_at TIMESTAMP NULL, " +
+                         "removed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            stmt.executeUpdate("INSERT INTO appointment_duplicate (id, user_id, slot_id, created_at) " +
+                             "SELECT a.id, a.user_id, a.slot_id, a.created_at FROM appointment a " +
+                             "WHERE EXISTS (SELECT 1 FROM appointment b WHERE b.slot_id = a.slot_id AND b.id < a.id)");
+            stmt.executeUpdate("DELETE FROM appointment WHERE id IN (SELECT id FROM appointment_duplicate)");
+            ChangeTracking.recordDeletes(conn, "appointment", duplicates);
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        System.err.printf("Moved %d duplicate bookings to appointment_duplicate%n", duplicates.size());
+    }
+
+    // LoginApp's appointments: bookable rows with a start and a length, claimed through booked_by
+    public static void ensureLoginAppointments(Connection conn) throws SQLException {
+        ensureAppointments(conn, "booked_by", "LoginApp",
+            "CREATE TABLE IF NOT EXISTS appointments (" +
+            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+            "title VARCHAR(100) NOT NULL, " +
+            "description TEXT, " +
+            "date_time DATETIME NOT NULL, " +
+            "duration_minutes INT NOT NULL, " +
+            "is_available BOOLEAN DEFAULT TRUE, " +
+            "booked_by INT NULL, " +
+            "updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3), " +
+            "INDEX idx_appointments_updated_at (updated_at), " +
+            "INDEX idx_appointments_booked_by (booked_by, date_time), " +
+            "INDEX idx_appointments_available (is_available, date_time), " +
+            "FOREIGN KEY (booked_by) REFERENCES user(id))");
+    }
+
+    // AdminAppointmentPage's appointments: one row per user visit, paged on (date, time, appointment_id)
+    public static void ensureAdminAppointments(Connection conn) throws SQLException {
+        ensureAppointments(conn, "appointment_id", "AdminAppointmentPage",
+            "CREATE TABLE IF NOT EXISTS appointments (" +
+            "appointment_id INT AUTO_INCREMENT PRIMARY KEY, " +
+            "user_id INT NOT NULL, " +
+            "date DATE NOT NULL, " +
+            "time TIME NOT NULL, " +
+            "status VARCHAR(20), " +
+            "duration_minutes INT NOT NULL DEFAULT " + AdminAppointmentPage.DEFAULT_MINUTES + ", " +
+            "updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3), " +
+            "INDEX idx_appointments_updated_at (updated_at), " +
+            "INDEX idx_appointments_date_time (date, time, appointment_id), " +
+            "INDEX idx_appointments_user_date (user_id, date, time))");
+    }
+
+    // Creates the table complete, with what migrations 3, 4 and 6 add, since they ran before it
+    // existed. A table of the other layout is reported rather than used.
+    private static void ensureAppointments(Connection conn, String keyColumn, String owner, String ddl) throws SQLException {
+        if (tableExists(conn, "appointments")) {
+            if (!columnExists(conn, "appointments", keyColumn)) {
+                throw new SQLException("Table appointments in this database does not have the " + owner +
+                    " layout (no " + keyColumn + " column); point " + owner + " at its own database");
+            }
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(ddl);
+        }
+    }
+
+    private static void createIndex(Connection conn, Statement stmt, String table, String name,
+                                    String columns, boolean unique) throws SQLException {
+        if (!tableExists(conn, table) || indexExists(conn, table, name)) return;
+        stmt.executeUpdate("CREATE " + (unique ? "UNIQUE " : "") + "INDEX " + name +
+                         " ON " + table + " (" + columns + ")");
+    }
+
+    public static void main(String[] args) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int applied = migrate(conn);
+            System.out.printf("Schema at version %d (%d applied)%n", currentVersion(conn), applied);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Who is signed in, plus a bounded cache of user id -> username. Views show names
+// from this cache instead of joining the user table on every read. Writers of user
+// rows in this process invalidate (or overwrite) their entries; entries also expire
+// after a TTL so renames made by other processes still show up eventually.
+public class Session {
+
+    private static final int MAX_NAMES = Integer.getInteger("session.userCache.maxSize", 10_000);
+    private static final long NAME_TTL_MS = Long.getLong("session.userCache.ttlMs", 600_000);
+    // Misses are resolved with IN lists of at most this many ids
+    private static final int LOOKUP_BATCH = 500;
+
+    private static volatile CredentialService.Account principal;
+
+    private static final class CachedName {
+        final String username;
+        final long loadedAt;
+
+        CachedName(String username, long loadedAt) {
+            this.username = username;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    // Access ordered, so the eldest entry is the least recently used; guarded by itself
+    private static final LinkedHashMap<Integer, CachedName> names = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, CachedName> eldest) {
+            return size() > MAX_NAMES;
+        }
+    };
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    public static void begin(CredentialService.Account account) {
+        principal = account;
+        remember(account.id, account.username);
+    }
+
+    public static void end() {
+        principal = null;
+    }
+
+    // The signed-in account; fails loudly when a screen is reached without logging in
+    public static CredentialService.Account current() {
+        CredentialService.Account account = principal;
+        if (account == null) {
+            throw new IllegalStateException("No user is signed in");
+        }
+        return account;
+    }
+
+    public static boolean isSignedIn() {
+        return principal != null;
+    }
+
+    public static void remember(int userId, String username) {
+        synchronized (names) {
+            names.put(userId, new CachedName(username, System.currentTimeMillis()));
+        }
+    }
+
+    // Call whenever a user row changes or is deleted
+    public static void invalidate(int userId) {
+        synchronized (names) {
+            names.remove(userId);
+        }
+    }
+
+    public static void invalidateAll() {
+        synchronized (names) {
+            names.clear();
+        }
+    }
+
+    // Resolves every id to its username, querying only for ids that are not cached
+    public static Map<Integer, String> usernames(Connection conn, Collection<Integer> userIds) throws SQLException {
+        Map<Integer, String> resolved = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (names) {
+            for (int userId : new LinkedHashSet<>(userIds)) {
+                CachedName cached = names.get(userId);
+                if (cached != null && now - cached.loadedAt < NAME_TTL_MS) {
+                    resolved.put(userId, cached.username);
+                } else {
+                    missing.add(userId);
+                }
+            }
+        }
+        hits.add(resolved.size());
+        misses.add(missing.size());
+
+        for (int from = 0; from < missing.size(); from += LOOKUP_BATCH) {
+            List<Integer> batch = missing.subList(from, Math.min(missing.size(), from + LOOKUP_BATCH));
+            StringBuilder sql = new StringBuilder("SELECT id, username FROM user WHERE id IN (");
+            for (int i = 0; i < batch.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql.append(")").toString())) {
+                for (int i = 0; i < batch.size(); i++) {
+                    stmt.setInt(i + 1, batch.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int userId = rs.getInt("id");
+                        String username = rs.getString("username");
+                        resolved.put(userId, username);
+                        remember(userId, username);
+                    }
+                }
+            }
+        }
+        return resolved;
+    }
+
+    public static String usernameOf(Connection conn, int userId) throws SQLException {
+        return usernames(conn, List.of(userId)).get(userId);
+    }
+
+    public static String stats() {
+        synchronized (names) {
+            return String.format("names=%d hits=%d misses=%d", names.size(), hits.sum(), misses.sum());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+
+// A bookable slot as listed to users (AppointmentSystem schema). A flyweight: the id
+// and times are read from the calendar row it points at, only availability is held,
+// as of when the view was taken.
+public class Slot {
+    private final SlotCalendar calendar;
+    private final int row;
+    private final boolean isAvailable;
+
+    Slot(SlotCalendar calendar, int row, boolean isAvailable) {
+        this.calendar = calendar;
+        this.row = row;
+        this.isAvailable = isAvailable;
+    }
+
+    static final Comparator<Slot> ORDER =
+        Comparator.comparingLong(Slot::startEpochSecond).thenComparingInt(Slot::getId);
+
+    // Views of another calendar count as different, so a table moves onto the current one
+    boolean sameAs(Slot other) {
+        return calendar == other.calendar && row == other.row && isAvailable == other.isAvailable;
+    }
+
+    long startEpochSecond() { return calendar.start(row); }
+    long endEpochSecond() { return calendar.end(row); }
+
+    public LocalDateTime start() { return LocalDateTime.ofEpochSecond(calendar.start(row), 0, ZoneOffset.UTC); }
+    public LocalDateTime end() { return LocalDateTime.ofEpochSecond(calendar.end(row), 0, ZoneOffset.UTC); }
+
+    public int getId() { return calendar.id(row); }
+    public String getStartTime() { return start().toString(); }
+    public String getEndTime() { return end().toString(); }
+    public String getStatus() { return isAvailable ? "Available" : "Booked"; }
+    public boolean isAvailable() { return isAvailable; }
+}
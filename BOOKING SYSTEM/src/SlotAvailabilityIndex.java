@@ -0,0 +1,427 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Resident copy of the slot table so the user dashboard never has to scan MySQL.
+// Slots live in a columnar SlotCalendar sorted by start time, with availability in
+// two bitsets. Bookings update it write-through and a periodic reconciliation pass
+// picks up changes made elsewhere: it reads only the slots changed since its last
+// watermark and falls back to a full reload when stale.
+public class SlotAvailabilityIndex {
+
+    private static final long RECONCILE_SECONDS = Long.getLong("slots.reconcileSeconds", 60);
+    private static final long RETRY_SECONDS = Long.getLong("slots.retrySeconds", 5);
+
+    private static final String LOAD_SQL =
+        "SELECT s.id, s.provider_id, s.start_time, s.end_time, s.is_available, " +
+        "EXISTS (SELECT 1 FROM appointment a WHERE a.slot_id = s.id) AS claimed " +
+        "FROM slot s ORDER BY s.start_time, s.id";
+
+    private static final String CHANGES_SQL =
+        "SELECT s.id, s.provider_id, s.start_time, s.end_time, s.is_available, " +
+        "EXISTS (SELECT 1 FROM appointment a WHERE a.slot_id = s.id) AS claimed " +
+        "FROM slot s WHERE s.updated_at >= ? " +
+        "OR s.id IN (SELECT a.slot_id FROM appointment a WHERE a.updated_at >= ?) " +
+        "OR s.id IN (SELECT t.ref_id FROM row_tombstone t WHERE t.table_name = 'appointment' AND t.deleted_at >= ?) " +
+        "ORDER BY s.start_time, s.id";
+
+    // Journal entry kinds
+    private static final int BOOKED = 0;
+    private static final int RELEASED = 1;
+
+    private static final Metrics.Timer RELOAD_EXECUTE = Metrics.timer("slots.reload.execute");
+    private static final Metrics.Timer RELOAD_MAP = Metrics.timer("slots.reload.map");
+    private static final Metrics.Timer CHANGES_EXECUTE = Metrics.timer("slots.changes.execute");
+    private static final Metrics.Timer CHANGES_MAP = Metrics.timer("slots.changes.map");
+    private static final Metrics.Timer LIST = Metrics.timer("slots.list");
+    private static final Metrics.Timer SEARCH = Metrics.timer("slots.search");
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Completed by the first successful load; a failed attempt fails it and installs a fresh one
+    private volatile CompletableFuture<Void> ready = new CompletableFuture<>();
+    private SlotCalendar calendar = SlotCalendar.EMPTY;
+    // Write-throughs made while a reload is running, replayed onto the new snapshot
+    private List<int[]> journal;
+    // Database time of the last successful load; only touched by the loading thread
+    private volatile Timestamp watermark;
+    private ScheduledExecutorService reconciler;
+
+    public CompletableFuture<Void> start() {
+        CompletableFuture<Void> first = ready;
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "slot-index-reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcile, RECONCILE_SECONDS, RECONCILE_SECONDS, TimeUnit.SECONDS);
+        loadUntilReady();
+        return first;
+    }
+
+    // Retries the initial load until one succeeds; callers waiting meanwhile see each failure
+    private void loadUntilReady() {
+        AsyncDb.supply(conn -> {
+            reload(conn);
+            return null;
+        }).whenComplete((v, error) -> {
+            if (error == null) return;
+            Throwable cause = AsyncDb.unwrap(error);
+            loadFailed(cause);
+            System.err.println("Slot index load failed, retrying in " + RETRY_SECONDS + " s: " + cause.getMessage());
+            if (!reconciler.isShutdown()) {
+                reconciler.schedule(this::loadUntilReady, RETRY_SECONDS, TimeUnit.SECONDS);
+            }
+        });
+    }
+
+    private synchronized void loaded() {
+        ready.complete(null);
+    }
+
+    private synchronized void loadFailed(Throwable error) {
+        if (ready.isDone()) return;
+        CompletableFuture<Void> failed = ready;
+        ready = new CompletableFuture<>();
+        failed.completeExceptionally(error);
+    }
+
+    public void stop() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+    }
+
+    public CompletableFuture<Void> whenReady() {
+        return ready;
+    }
+
+    // True once a load has succeeded, so the index can be trusted
+    public boolean isReady() {
+        CompletableFuture<Void> current = ready;
+        return current.isDone() && !current.isCompletedExceptionally();
+    }
+
+    private void reconcile() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (!isReady()) {
+                // The initial load is still being retried
+                return;
+            }
+            if (ChangeTracking.isStale(watermark, ChangeTracking.now(conn))) {
+                reload(conn);
+            } else {
+                applyChanges(conn);
+            }
+        } catch (SQLException e) {
+            System.err.println("Slot index reconciliation failed: " + e.getMessage());
+        }
+    }
+
+    // Rebuilds the index from the slot table and swaps it in atomically
+    public void reload(Connection conn) throws SQLException {
+        beginJournal();
+        Timestamp asOf;
+        SlotCalendar fresh;
+        try (Statement stmt = conn.createStatement()) {
+            asOf = ChangeTracking.now(conn);
+            long t = Metrics.start();
+            try (ResultSet rs = stmt.executeQuery(LOAD_SQL)) {
+                t = RELOAD_EXECUTE.stop(t);
+                SlotCalendar.Builder builder = new SlotCalendar.Builder();
+                while (rs.next()) {
+                    builder.add(readRow(rs));
+                }
+                fresh = builder.build();
+            }
+            RELOAD_MAP.stop(t);
+        } catch (SQLException | RuntimeException e) {
+            swap(null, null);
+            throw e;
+        }
+        swap(fresh, asOf);
+        loaded();
+    }
+
+    // Reads only slots touched since the watermark and merges them into the index
+    public void applyChanges(Connection conn) throws SQLException {
+        beginJournal();
+        Timestamp since = ChangeTracking.since(watermark);
+        Timestamp asOf;
+        List<long[]> changed = new ArrayList<>();
+        Map<Integer, Integer> deleted;
+        try (PreparedStatement stmt = conn.prepareStatement(CHANGES_SQL)) {
+            asOf = ChangeTracking.now(conn);
+            stmt.setTimestamp(1, since);
+            stmt.setTimestamp(2, since);
+            stmt.setTimestamp(3, since);
+            long t = Metrics.start();
+            try (ResultSet rs = stmt.executeQuery()) {
+                t = CHANGES_EXECUTE.stop(t);
+                while (rs.next()) {
+                    changed.add(readRow(rs));
+                }
+            }
+            CHANGES_MAP.stop(t);
+            deleted = ChangeTracking.deletedSince(conn, "slot", since);
+        } catch (SQLException | RuntimeException e) {
+            swap(null, null);
+            throw e;
+        }
+
+        SlotCalendar current;
+        boolean patchable;
+        lock.readLock().lock();
+        try {
+            current = calendar;
+            patchable = deleted.isEmpty() && canPatch(current, changed);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (patchable) {
+            // Bits flip in place, so readers must be kept out while it happens
+            lock.writeLock().lock();
+            try {
+                patch(current, changed);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            swap(current, asOf);
+        } else {
+            swap(merge(current, changed, deleted.keySet()), asOf);
+        }
+    }
+
+    private void beginJournal() {
+        lock.writeLock().lock();
+        try {
+            journal = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Installs a new calendar (null: keep the current one), replaying write-throughs made meanwhile
+    private void swap(SlotCalendar next, Timestamp asOf) {
+        lock.writeLock().lock();
+        try {
+            if (next != null) {
+                for (int[] change : journal) {
+                    apply(next, change[0], change[1]);
+                }
+                calendar = next;
+                watermark = asOf;
+            }
+            journal = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long[] readRow(ResultSet rs) throws SQLException {
+        return new long[] {
+            rs.getInt("id"),
+            rs.getTimestamp("start_time").toLocalDateTime().toEpochSecond(ZoneOffset.UTC),
+            rs.getTimestamp("end_time").toLocalDateTime().toEpochSecond(ZoneOffset.UTC),
+            rs.getBoolean("is_available") ? 1 : 0,
+            rs.getBoolean("claimed") ? 1 : 0,
+            rs.getInt("provider_id")
+        };
+    }
+
+    // Slots the user dashboard lists: open, or never booked
+    public List<Slot> availableSlots() {
+        long t = Metrics.start();
+        lock.readLock().lock();
+        try {
+            return listed(0, calendar.size());
+        } finally {
+            lock.readLock().unlock();
+            LIST.stop(t);
+        }
+    }
+
+    // Listed slots starting in [from, to), found by binary search on start time
+    public List<Slot> availableSlots(LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            return listed(calendar.firstAtOrAfter(from), calendar.firstAtOrAfter(to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Earliest open slot starting at or after the given time that lasts at least minMinutes,
+    // optionally of one provider; null when there is none
+    public Slot nextAvailable(LocalDateTime after, int minMinutes, Integer providerId) {
+        List<Slot> found = firstAvailable(after, null, 1, minMinutes, providerId);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    // Up to limit open slots starting in [from, to) (to null: no end), earliest first.
+    // A binary search finds the start row and the open bitset skips booked rows, so the
+    // cost follows the number of slots returned rather than the size of the calendar.
+    public List<Slot> firstAvailable(LocalDateTime from, LocalDateTime to, int limit, int minMinutes, Integer providerId) {
+        long t = Metrics.start();
+        lock.readLock().lock();
+        try {
+            int row = calendar.firstAtOrAfter(from);
+            int end = to == null ? calendar.size() : calendar.firstAtOrAfter(to);
+            int provider = providerId == null ? SlotCalendar.ANY_PROVIDER : providerId;
+            List<Slot> slots = new ArrayList<>();
+            while (slots.size() < limit && (row = calendar.nextOpen(row, end, minMinutes * 60L, provider)) >= 0) {
+                slots.add(calendar.slot(row));
+                row++;
+            }
+            return slots;
+        } finally {
+            lock.readLock().unlock();
+            SEARCH.stop(t);
+        }
+    }
+
+    // Caller holds the read lock
+    private List<Slot> listed(int fromRow, int toRow) {
+        List<Slot> slots = new ArrayList<>();
+        for (int row = fromRow; row < toRow; row++) {
+            if (calendar.isListed(row)) {
+                slots.add(calendar.slot(row));
+            }
+        }
+        return slots;
+    }
+
+    public boolean isOpen(int slotId) {
+        lock.readLock().lock();
+        try {
+            int row = calendar.rowOf(slotId);
+            return row >= 0 && calendar.isOpen(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // True only for an indexed slot that is not open; slots published since the last
+    // reconcile are unknown here and must be left to the database to decide
+    public boolean isKnownClosed(int slotId) {
+        lock.readLock().lock();
+        try {
+            int row = calendar.rowOf(slotId);
+            return row >= 0 && !calendar.isOpen(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Start and end of the slot in epoch seconds, or null when it is not indexed
+    public long[] times(int slotId) {
+        lock.readLock().lock();
+        try {
+            int row = calendar.rowOf(slotId);
+            return row < 0 ? null : new long[] { calendar.start(row), calendar.end(row) };
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return calendar.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Write-through after a booking has been committed
+    public void markBooked(int slotId) {
+        record(slotId, BOOKED);
+    }
+
+    // Write-through after a cancellation has been committed
+    public void markReleased(int slotId) {
+        record(slotId, RELEASED);
+    }
+
+    private void record(int slotId, int change) {
+        lock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.add(new int[] { slotId, change });
+            }
+            apply(calendar, slotId, change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(SlotCalendar calendar, int slotId, int change) {
+        int row = calendar.rowOf(slotId);
+        if (row < 0) return;
+        if (change == BOOKED) {
+            calendar.setOpen(row, false);
+            calendar.setClaimed(row, true);
+        } else if (change == RELEASED) {
+            calendar.setOpen(row, true);
+            calendar.setClaimed(row, false);
+        }
+    }
+
+    // True when every changed row is already indexed at the same time and provider, so only bits change
+    private static boolean canPatch(SlotCalendar calendar, List<long[]> changed) {
+        for (long[] changedRow : changed) {
+            int row = calendar.rowOf((int) changedRow[0]);
+            if (row < 0 || calendar.start(row) != changedRow[1] || calendar.end(row) != changedRow[2]
+                    || calendar.provider(row) != changedRow[5]) return false;
+        }
+        return true;
+    }
+
+    private static void patch(SlotCalendar calendar, List<long[]> changed) {
+        for (long[] changedRow : changed) {
+            int row = calendar.rowOf((int) changedRow[0]);
+            calendar.setOpen(row, changedRow[3] == 1);
+            calendar.setClaimed(row, changedRow[4] == 1);
+        }
+    }
+
+    // Builds a new calendar with changed rows (sorted by start, id) and deletions applied,
+    // merging two already sorted sequences so nothing has to be re-sorted
+    private static SlotCalendar merge(SlotCalendar calendar, List<long[]> changed, Set<Integer> deleted) {
+        Set<Integer> replaced = new HashSet<>(deleted);
+        for (long[] row : changed) {
+            replaced.add((int) row[0]);
+        }
+        SlotCalendar.Builder builder = new SlotCalendar.Builder();
+        int next = 0;
+        for (int i = 0; i < calendar.size(); i++) {
+            if (replaced.contains(calendar.id(i))) continue;
+            while (next < changed.size() && before(changed.get(next), calendar.start(i), calendar.id(i))) {
+                builder.add(changed.get(next++));
+            }
+            builder.add(calendar.row(i));
+        }
+        while (next < changed.size()) {
+            builder.add(changed.get(next++));
+        }
+        return builder.build();
+    }
+
+    private static boolean before(long[] row, long start, int id) {
+        return row[1] < start || (row[1] == start && row[0] < id);
+    }
+}
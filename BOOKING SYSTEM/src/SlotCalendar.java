@@ -0,0 +1,217 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Columnar store of slots sorted by (start, id): int columns of ids and providers,
+// two long columns of local epoch seconds and two bitsets. With -Dslots.offHeap=true the
+// columns live in direct buffers, so millions of slots add almost nothing to the
+// heap the GC has to trace. Rows never move once built; only the availability bits
+// change, under the owner's lock. Slot objects handed out are views onto one row.
+public final class SlotCalendar {
+
+    static final boolean OFF_HEAP = Boolean.getBoolean("slots.offHeap");
+
+    static final SlotCalendar EMPTY = new Builder().build();
+
+    // Provider filter matching every slot; slots without a provider are stored as 0
+    static final int ANY_PROVIDER = -1;
+
+    private final int size;
+    private final IntBuffer ids;
+    private final IntBuffer providers;
+    private final LongBuffer starts;
+    private final LongBuffer ends;
+    private final BitSet open;
+    private final BitSet claimed;
+    // Length of the longest slot, so searches for anything longer end at once
+    private final long longest;
+    // Dense: slot id - minId -> row, -1 when the id is unknown. Sparse (sortedIds set, when
+    // pruned slots leave the live ids spread over a range much wider than the row count):
+    // ids in order, with rows[i] the row of sortedIds[i], found by binary search.
+    private final int minId;
+    private final IntBuffer rows;
+    private final IntBuffer sortedIds;
+
+    private SlotCalendar(int size, IntBuffer ids, IntBuffer providers, LongBuffer starts, LongBuffer ends,
+                         BitSet open, BitSet claimed, long longest, int minId, IntBuffer rows, IntBuffer sortedIds) {
+        this.size = size;
+        this.ids = ids;
+        this.providers = providers;
+        this.starts = starts;
+        this.ends = ends;
+        this.open = open;
+        this.claimed = claimed;
+        this.longest = longest;
+        this.minId = minId;
+        this.rows = rows;
+        this.sortedIds = sortedIds;
+    }
+
+    public int size() { return size; }
+    public int id(int row) { return ids.get(row); }
+    public int provider(int row) { return providers.get(row); }
+    public long start(int row) { return starts.get(row); }
+    public long end(int row) { return ends.get(row); }
+    public boolean isOpen(int row) { return open.get(row); }
+    public boolean isClaimed(int row) { return claimed.get(row); }
+
+    void setOpen(int row, boolean value) { open.set(row, value); }
+    void setClaimed(int row, boolean value) { claimed.set(row, value); }
+
+    // Row of the slot, or -1
+    public int rowOf(int slotId) {
+        if (sortedIds != null) {
+            int lo = 0, hi = sortedIds.limit() - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int id = sortedIds.get(mid);
+                if (id < slotId) lo = mid + 1;
+                else if (id > slotId) hi = mid - 1;
+                else return rows.get(mid);
+            }
+            return -1;
+        }
+        long offset = (long) slotId - minId;
+        return offset >= 0 && offset < rows.limit() ? rows.get((int) offset) : -1;
+    }
+
+    // First row starting at or after the given local epoch second; size() when there is none
+    public int firstAtOrAfter(long epochSecond) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts.get(mid) < epochSecond) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    public int firstAtOrAfter(LocalDateTime time) {
+        return firstAtOrAfter(time.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    // First open row in [fromRow, toRow) at least minSeconds long and of the provider
+    // (or ANY_PROVIDER); -1 when there is none. Booked rows are skipped a word at a time.
+    public int nextOpen(int fromRow, int toRow, long minSeconds, int provider) {
+        if (minSeconds > longest) return -1;
+        for (int row = open.nextSetBit(fromRow); row >= 0 && row < toRow; row = open.nextSetBit(row + 1)) {
+            if (ends.get(row) - starts.get(row) >= minSeconds
+                    && (provider == ANY_PROVIDER || providers.get(row) == provider)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    // Bookable for listing purposes: open, or never booked
+    public boolean isListed(int row) {
+        return open.get(row) || !claimed.get(row);
+    }
+
+    // A view of the row; availability is captured now, times and id are read from the columns
+    public Slot slot(int row) {
+        return new Slot(this, row, open.get(row));
+    }
+
+    long[] row(int row) {
+        return new long[] { ids.get(row), starts.get(row), ends.get(row),
+            open.get(row) ? 1 : 0, claimed.get(row) ? 1 : 0, providers.get(row) };
+    }
+
+    private static IntBuffer ints(int[] values, int length) {
+        if (!OFF_HEAP) return IntBuffer.wrap(Arrays.copyOf(values, length));
+        IntBuffer buffer = ByteBuffer.allocateDirect(length * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        buffer.put(values, 0, length).flip();
+        return buffer;
+    }
+
+    private static LongBuffer longs(long[] values, int length) {
+        if (!OFF_HEAP) return LongBuffer.wrap(Arrays.copyOf(values, length));
+        LongBuffer buffer = ByteBuffer.allocateDirect(length * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        buffer.put(values, 0, length).flip();
+        return buffer;
+    }
+
+    // Rows must be added sorted by (start, id)
+    public static final class Builder {
+        // The dense id index may use this many entries per row (plus a little slack) before the sorted one is used
+        private static final int MAX_IDS_PER_ROW = 4;
+        private static final int DENSE_SLACK = 1024;
+
+        private int[] ids = new int[64];
+        private int[] providers = new int[64];
+        private long[] starts = new long[64];
+        private long[] ends = new long[64];
+        private final BitSet open = new BitSet();
+        private final BitSet claimed = new BitSet();
+        private int count;
+        private int minId = Integer.MAX_VALUE;
+        private int maxId = Integer.MIN_VALUE;
+        private long longest;
+
+        public Builder add(int id, long start, long end, boolean isOpen, boolean isClaimed) {
+            return add(id, 0, start, end, isOpen, isClaimed);
+        }
+
+        public Builder add(int id, int provider, long start, long end, boolean isOpen, boolean isClaimed) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                providers = Arrays.copyOf(providers, count * 2);
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            ids[count] = id;
+            providers[count] = provider;
+            starts[count] = start;
+            ends[count] = end;
+            if (isOpen) open.set(count);
+            if (isClaimed) claimed.set(count);
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+            longest = Math.max(longest, end - start);
+            count++;
+            return this;
+        }
+
+        // row: id, start, end (epoch seconds), open, claimed, provider
+        Builder add(long[] row) {
+            return add((int) row[0], (int) row[5], row[1], row[2], row[3] == 1, row[4] == 1);
+        }
+
+        public SlotCalendar build() {
+            long range = count == 0 ? 0 : (long) maxId - minId + 1;
+            if (range > (long) count * MAX_IDS_PER_ROW + DENSE_SLACK) {
+                return buildSparse();
+            }
+            int[] index = new int[(int) range];
+            Arrays.fill(index, -1);
+            for (int i = 0; i < count; i++) {
+                index[ids[i] - minId] = i;
+            }
+            return new SlotCalendar(count, ints(ids, count), ints(providers, count), longs(starts, count), longs(ends, count),
+                open, claimed, longest, count == 0 ? 0 : minId, ints(index, index.length), null);
+        }
+
+        private SlotCalendar buildSparse() {
+            // id in the high half, row in the low half: one primitive sort orders both
+            long[] byId = new long[count];
+            for (int i = 0; i < count; i++) {
+                byId[i] = (long) ids[i] << 32 | i;
+            }
+            Arrays.sort(byId);
+            int[] sorted = new int[count];
+            int[] index = new int[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = (int) (byId[i] >> 32);
+                index[i] = (int) byId[i];
+            }
+            return new SlotCalendar(count, ints(ids, count), ints(providers, count), longs(starts, count), longs(ends, count),
+                open, claimed, longest, minId, ints(index, count), ints(sorted, count));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// Heap footprint and scan speed of the columnar SlotCalendar against the object
+// model it replaced (a list of slots each holding two LocalDateTimes). Run it once
+// as is and once with -Dslots.offHeap=true to see the direct-buffer variant.
+//
+// Usage: java -cp out:javafx-base.jar SlotCalendarBenchmark [slots]
+public class SlotCalendarBenchmark {
+
+    // The per-slot object the index used to build
+    static final class ObjectSlot {
+        final int id;
+        final LocalDateTime startTime;
+        final LocalDateTime endTime;
+        final boolean isAvailable;
+
+        ObjectSlot(int id, LocalDateTime startTime, LocalDateTime endTime, boolean isAvailable) {
+            this.id = id;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.isAvailable = isAvailable;
+        }
+    }
+
+    private static final int REPEATS = 10;
+    private static final long FIRST = LocalDateTime.of(2030, 1, 1, 8, 0).toEpochSecond(ZoneOffset.UTC);
+    private static volatile long sink;
+
+    public static void main(String[] args) {
+        int slots = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        System.out.println("slots=" + slots + " offHeap=" + SlotCalendar.OFF_HEAP);
+
+        long before = usedAfterGc();
+        List<ObjectSlot> objects = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            objects.add(new ObjectSlot(i + 1,
+                LocalDateTime.ofEpochSecond(start(i), 0, ZoneOffset.UTC),
+                LocalDateTime.ofEpochSecond(start(i) + 900, 0, ZoneOffset.UTC), i % 3 != 0));
+        }
+        long objectBytes = usedAfterGc() - before;
+
+        before = usedAfterGc();
+        long directBefore = directBytes();
+        SlotCalendar.Builder builder = new SlotCalendar.Builder();
+        for (int i = 0; i < slots; i++) {
+            builder.add(i + 1, start(i), start(i) + 900, i % 3 != 0, i % 3 == 0);
+        }
+        SlotCalendar calendar = builder.build();
+        builder = null;
+        long calendarBytes = usedAfterGc() - before;
+        long calendarDirect = directBytes() - directBefore;
+
+        System.out.printf("%-28s %10s %10s %12s%n", "Model", "Heap MB", "Direct MB", "Bytes/slot");
+        System.out.printf("%-28s %10.1f %10.1f %12.1f%n", "List<ObjectSlot>", objectBytes / 1e6, 0.0,
+            objectBytes / (double) slots);
+        System.out.printf("%-28s %10.1f %10.1f %12.1f%n", "SlotCalendar", calendarBytes / 1e6, calendarDirect / 1e6,
+            (calendarBytes + calendarDirect) / (double) slots);
+
+        // Full scan: count open slots and sum their minutes
+        time("full scan, objects", () -> {
+            long total = 0;
+            for (ObjectSlot slot : objects) {
+                if (slot.isAvailable) {
+                    total += java.time.Duration.between(slot.startTime, slot.endTime).toMinutes();
+                }
+            }
+            return total;
+        });
+        time("full scan, calendar", () -> {
+            long total = 0;
+            for (int row = 0; row < calendar.size(); row++) {
+                if (calendar.isOpen(row)) {
+                    total += (calendar.end(row) - calendar.start(row)) / 60;
+                }
+            }
+            return total;
+        });
+
+        // One day's slots somewhere in the middle
+        LocalDateTime from = LocalDateTime.ofEpochSecond(start(slots / 2), 0, ZoneOffset.UTC);
+        LocalDateTime to = from.plusDays(1);
+        time("range lookup, objects", () -> {
+            long found = 0;
+            for (ObjectSlot slot : objects) {
+                if (!slot.startTime.isBefore(from) && slot.startTime.isBefore(to)) found++;
+            }
+            return found;
+        });
+        time("range lookup, calendar", () ->
+            (long) calendar.firstAtOrAfter(to) - calendar.firstAtOrAfter(from));
+
+        // Keep both models reachable until the end
+        sink += objects.size() + calendar.size();
+    }
+
+    // 40 slots of 15 minutes per day from 08:00
+    private static long start(int i) {
+        return FIRST + (i / 40) * 86_400L + (i % 40) * 900L;
+    }
+
+    private interface Work {
+        long run();
+    }
+
+    private static void time(String name, Work work) {
+        for (int i = 0; i < REPEATS; i++) {
+            sink += work.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < REPEATS; i++) {
+            long t0 = System.nanoTime();
+            sink += work.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        System.out.printf("%-28s %12.3f ms%n", name, best / 1e6);
+    }
+
+    private static long directBytes() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) return pool.getMemoryUsed();
+        }
+        return 0;
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,237 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Publishes provider schedules into the slot table. Rules are expanded lazily,
+// one slot at a time, and written with multi-row INSERT statements sent as JDBC
+// batches, so months of slots for many providers never sit in memory at once.
+public class SlotGenerator {
+
+    // Rows per multi-row INSERT statement and statements per executeBatch/commit
+    private static final int ROWS_PER_STATEMENT = 500;
+    private static final int STATEMENTS_PER_BATCH = 20;
+
+    // Working hours of one provider over a date range
+    public static class ScheduleRule {
+        final Integer providerId;
+        final LocalDate from;
+        final LocalDate to;
+        final LocalTime open;
+        final LocalTime close;
+        final Duration slotLength;
+        final Set<DayOfWeek> workingDays = EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY,
+            DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY);
+        final List<LocalTime[]> breaks = new ArrayList<>();
+        final Set<LocalDate> holidays = new HashSet<>();
+
+        // providerId may be null for the shared calendar; from and to are inclusive
+        public ScheduleRule(Integer providerId, LocalDate from, LocalDate to,
+                            LocalTime open, LocalTime close, Duration slotLength) {
+            if (slotLength.isZero() || slotLength.isNegative()) {
+                throw new IllegalArgumentException("Slot length must be positive");
+            }
+            if (!close.isAfter(open)) {
+                throw new IllegalArgumentException("Closing time must be after opening time");
+            }
+            this.providerId = providerId;
+            this.from = from;
+            this.to = to;
+            this.open = open;
+            this.close = close;
+            this.slotLength = slotLength;
+        }
+
+        public ScheduleRule workingDays(Set<DayOfWeek> days) {
+            workingDays.clear();
+            workingDays.addAll(days);
+            return this;
+        }
+
+        public ScheduleRule addBreak(LocalTime start, LocalTime end) {
+            breaks.add(new LocalTime[] { start, end });
+            return this;
+        }
+
+        public ScheduleRule addHoliday(LocalDate date) {
+            holidays.add(date);
+            return this;
+        }
+    }
+
+    // Walks the slots of one rule without materialising them; current slot is in start/end
+    static class Expansion {
+        private final ScheduleRule rule;
+        private final long slotSeconds;
+        private final int[][] breakSeconds;
+        private LocalDate date;
+        private long dayStart;
+        private int cursor;
+        long start;
+        long end;
+
+        Expansion(ScheduleRule rule) {
+            this.rule = rule;
+            this.slotSeconds = rule.slotLength.getSeconds();
+            this.breakSeconds = new int[rule.breaks.size()][];
+            for (int i = 0; i < breakSeconds.length; i++) {
+                LocalTime[] b = rule.breaks.get(i);
+                breakSeconds[i] = new int[] { b[0].toSecondOfDay(), b[1].toSecondOfDay() };
+            }
+            this.date = rule.from.minusDays(1);
+            this.cursor = Integer.MAX_VALUE;
+        }
+
+        boolean next() {
+            int closeSecond = rule.close.toSecondOfDay();
+            while (true) {
+                if (cursor + slotSeconds > closeSecond) {
+                    if (!advanceDay()) return false;
+                    cursor = rule.open.toSecondOfDay();
+                }
+                long slotEnd = cursor + slotSeconds;
+                int skipTo = overlappingBreakEnd(cursor, slotEnd);
+                if (skipTo >= 0) {
+                    cursor = skipTo;
+                    continue;
+                }
+                start = dayStart + cursor;
+                end = dayStart + slotEnd;
+                cursor = (int) slotEnd;
+                return true;
+            }
+        }
+
+        private boolean advanceDay() {
+            do {
+                date = date.plusDays(1);
+                if (date.isAfter(rule.to)) return false;
+            } while (!rule.workingDays.contains(date.getDayOfWeek()) || rule.holidays.contains(date));
+            dayStart = date.toEpochDay() * 86_400L;
+            return true;
+        }
+
+        private int overlappingBreakEnd(long slotStart, long slotEnd) {
+            for (int[] b : breakSeconds) {
+                if (slotStart < b[1] && slotEnd > b[0]) return b[1];
+            }
+            return -1;
+        }
+    }
+
+    // Streams every slot of the rules into the slot table; returns the number of rows written
+    public static long publish(Connection conn, List<ScheduleRule> rules) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        long written = 0;
+        try (PreparedStatement full = conn.prepareStatement(insertSql(ROWS_PER_STATEMENT))) {
+            long[] starts = new long[ROWS_PER_STATEMENT];
+            long[] ends = new long[ROWS_PER_STATEMENT];
+            Integer[] providers = new Integer[ROWS_PER_STATEMENT];
+            int buffered = 0;
+            int statements = 0;
+
+            for (ScheduleRule rule : rules) {
+                Expansion slots = new Expansion(rule);
+                while (slots.next()) {
+                    starts[buffered] = slots.start;
+                    ends[buffered] = slots.end;
+                    providers[buffered] = rule.providerId;
+                    if (++buffered == ROWS_PER_STATEMENT) {
+                        bind(full, providers, starts, ends, buffered);
+                        full.addBatch();
+                        written += buffered;
+                        buffered = 0;
+                        if (++statements == STATEMENTS_PER_BATCH) {
+                            full.executeBatch();
+                            conn.commit();
+                            statements = 0;
+                        }
+                    }
+                }
+            }
+            if (statements > 0) {
+                full.executeBatch();
+            }
+            if (buffered > 0) {
+                try (PreparedStatement tail = conn.prepareStatement(insertSql(buffered))) {
+                    bind(tail, providers, starts, ends, buffered);
+                    tail.executeUpdate();
+                }
+                written += buffered;
+            }
+            conn.commit();
+            return written;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO slot (provider_id, start_time, end_time) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
+    private static void bind(PreparedStatement stmt, Integer[] providers, long[] starts, long[] ends, int rows) throws SQLException {
+        int p = 1;
+        for (int i = 0; i < rows; i++) {
+            if (providers[i] == null) {
+                stmt.setNull(p++, Types.INTEGER);
+            } else {
+                stmt.setInt(p++, providers[i]);
+            }
+            stmt.setObject(p++, LocalDateTime.ofEpochSecond(starts[i], 0, ZoneOffset.UTC));
+            stmt.setObject(p++, LocalDateTime.ofEpochSecond(ends[i], 0, ZoneOffset.UTC));
+        }
+    }
+
+    // Schedule used to seed an empty database: the next two days, 09:00-12:00 with a break
+    public static ScheduleRule demoSchedule() {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        return new ScheduleRule(null, tomorrow, tomorrow.plusDays(1),
+                LocalTime.of(9, 0), LocalTime.of(12, 0), Duration.ofHours(1))
+            .workingDays(EnumSet.allOf(DayOfWeek.class))
+            .addBreak(LocalTime.of(10, 0), LocalTime.of(11, 0));
+    }
+
+    // Usage: SlotGenerator <providerId|-> <from> <to> <open> <close> <minutes> [breakStart-breakEnd]
+    public static void main(String[] args) {
+        if (args.length < 6) {
+            System.out.println("Usage: SlotGenerator <providerId|-> <from> <to> <open> <close> <minutes> [breakStart-breakEnd]");
+            return;
+        }
+        Integer providerId = args[0].equals("-") ? null : Integer.valueOf(args[0]);
+        ScheduleRule rule = new ScheduleRule(providerId, LocalDate.parse(args[1]), LocalDate.parse(args[2]),
+            LocalTime.parse(args[3]), LocalTime.parse(args[4]), Duration.ofMinutes(Long.parseLong(args[5])));
+        if (args.length > 6) {
+            String[] range = args[6].split("-");
+            rule.addBreak(LocalTime.parse(range[0]), LocalTime.parse(range[1]));
+        }
+
+        long started = System.nanoTime();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            SchemaMigrations.migrate(conn);
+            long rows = publish(conn, List.of(rule));
+            System.out.printf("Published %d slots in %d ms%n", rows, (System.nanoTime() - started) / 1_000_000);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
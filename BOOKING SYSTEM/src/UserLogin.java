@@ -1,16 +1,7 @@
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.Scanner;
 
 public class UserLogin {
 
-    static final String JDBC_URL = "jdbc:mysql://localhost:3306/appointment_system";
-    static final String DB_USER = "root";
-    static final String DB_PASSWORD = "";
-
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
 
@@ -20,31 +11,18 @@ public class UserLogin {
         System.out.print("Enter password: ");
         String inputPassword = scanner.nextLine();
 
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            Connection conn = DriverManager.getConnection(JDBC_URL, DB_USER, DB_PASSWORD);
-            System.out.println("Connected to the database.");
-
-            String sql = "SELECT * FROM user WHERE username = ? AND password = ?";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, inputUsername);
-            stmt.setString(2, inputPassword);
-
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                System.out.println("Login successful! Welcome, " + inputUsername + "!");
-                // Redirect to next page (e.g., dashboard) here
-            } else {
-                System.out.println("Login failed. Invalid username or password.");
-            }
-
-            rs.close();
-            stmt.close();
-            conn.close();
-
-        } catch (ClassNotFoundException | SQLException e) {
-            e.printStackTrace();
+        CredentialService.Account account = CredentialService.login(inputUsername, inputPassword)
+            .exceptionally(e -> {
+                AsyncDb.unwrap(e).printStackTrace();
+                return null;
+            })
+            .join();
+
+        if (account != null) {
+            System.out.println("Login successful! Welcome, " + inputUsername + "!");
+            // Redirect to next page (e.g., dashboard) here
+        } else {
+            System.out.println("Login failed. Invalid username or password.");
         }
 
         scanner.close();
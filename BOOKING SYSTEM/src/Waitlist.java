@@ -0,0 +1,220 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Waiting lines for booked slots (AppointmentSystem schema), kept in the slot_waitlist
+// table. Joins and cancellations both hold the slot's row lock, so row ids follow the
+// order people joined in on every instance, and a cancellation serves the line in id
+// order inside its own transaction: the slot is never open in between. Waiters get a
+// future that completes on handoff. A handoff made in this process completes it at
+// once; one made by another instance is picked up by a background check of this
+// process's watchers every waitlist.pollSeconds, so users never poll themselves.
+public class Waitlist {
+
+    private static final int NONE = -1;
+    private static final long POLL_SECONDS = Long.getLong("waitlist.pollSeconds", 10);
+
+    // slot id << 32 | user id -> completed with true on handoff, false when skipped or gone
+    private final ConcurrentHashMap<Long, CompletableFuture<Boolean>> watchers = new ConcurrentHashMap<>();
+
+    // Started with the first watcher
+    private ScheduledExecutorService poller;
+
+    private static long key(int slotId, int userId) {
+        return (long) slotId << 32 | (userId & 0xffffffffL);
+    }
+
+    // Queues the user for a booked slot and returns their place in line (1 = next).
+    // Returns 0 without queueing when the slot is open (book it instead), does not
+    // exist, or is already the user's. Joining again keeps the original place.
+    public int join(Connection conn, int userId, int slotId) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            // Same row lock a cancellation takes, so a slot cannot be released unseen mid-join
+            try (PreparedStatement lock = conn.prepareStatement(
+                     "SELECT s.is_available, EXISTS (SELECT 1 FROM appointment a WHERE a.slot_id = s.id AND a.user_id = ?) " +
+                     "FROM slot s WHERE s.id = ? FOR UPDATE")) {
+                lock.setInt(1, userId);
+                lock.setInt(2, slotId);
+                try (ResultSet rs = lock.executeQuery()) {
+                    if (!rs.next() || rs.getBoolean(1) || rs.getBoolean(2)) {
+                        conn.commit();
+                        return 0;
+                    }
+                }
+            }
+            try (PreparedStatement insert = conn.prepareStatement(
+                     "INSERT INTO slot_waitlist (slot_id, user_id) VALUES (?, ?)")) {
+                insert.setInt(1, slotId);
+                insert.setInt(2, userId);
+                insert.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // Already waiting: keeps the original place
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        return position(conn, userId, slotId);
+    }
+
+    // Place in line, 0 when the user is not waiting for the slot
+    public int position(Connection conn, int userId, int slotId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT COUNT(*) FROM slot_waitlist w JOIN slot_waitlist mine " +
+                 "ON mine.slot_id = w.slot_id AND mine.user_id = ? WHERE w.slot_id = ? AND w.id <= mine.id")) {
+            stmt.setInt(1, userId);
+            stmt.setInt(2, slotId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    public boolean leave(Connection conn, int userId, int slotId) throws SQLException {
+        boolean removed = delete(conn, slotId, userId);
+        CompletableFuture<Boolean> watcher = watchers.remove(key(slotId, userId));
+        if (watcher != null) watcher.complete(false);
+        return removed;
+    }
+
+    // Completes with true when the slot is handed to the user, false when they leave or are
+    // skipped. Already false when the user is not waiting, so nothing is kept for them.
+    public CompletableFuture<Boolean> whenHandedOff(Connection conn, int userId, int slotId) throws SQLException {
+        long key = key(slotId, userId);
+        CompletableFuture<Boolean> watcher = watchers.computeIfAbsent(key, k -> new CompletableFuture<>());
+        // Registered before the check, so a handoff committing in between still completes it
+        if (position(conn, userId, slotId) == 0) {
+            watchers.remove(key, watcher);
+            watcher.complete(false);
+        } else {
+            startPolling();
+        }
+        return watcher;
+    }
+
+    private synchronized void startPolling() {
+        if (poller != null) return;
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "waitlist-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::poll, POLL_SECONDS, POLL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+
+    // Settles watchers whose line was served elsewhere: booked means handed over, gone means skipped or left
+    private void poll() {
+        if (watchers.isEmpty()) return;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT EXISTS (SELECT 1 FROM appointment WHERE slot_id = ? AND user_id = ?), " +
+                 "EXISTS (SELECT 1 FROM slot_waitlist WHERE slot_id = ? AND user_id = ?)")) {
+            for (Long key : List.copyOf(watchers.keySet())) {
+                int slotId = (int) (key >>> 32);
+                int userId = (int) (long) key;
+                stmt.setInt(1, slotId);
+                stmt.setInt(2, userId);
+                stmt.setInt(3, slotId);
+                stmt.setInt(4, userId);
+                boolean booked;
+                boolean waiting;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    booked = rs.getBoolean(1);
+                    waiting = rs.getBoolean(2);
+                }
+                if (booked || !waiting) {
+                    CompletableFuture<Boolean> watcher = watchers.remove(key);
+                    if (watcher != null) watcher.complete(booked);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Waitlist poll failed: " + e.getMessage());
+        }
+    }
+
+    // Decides whether a waiter can take the slot; may query in the caller's transaction
+    interface Acceptor {
+        boolean accept(int userId) throws SQLException;
+    }
+
+    // Runs in the caller's transaction with the slot row locked, so no join can slip in.
+    // Removes waiters in table order until accept takes one and returns that user, or -1
+    // when nobody is left. Waiters accept turns down are removed for good and added to skipped.
+    int takeNext(Connection conn, int slotId, Acceptor accept, List<Integer> skipped) throws SQLException {
+        List<Integer> line = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT user_id FROM slot_waitlist WHERE slot_id = ? ORDER BY id")) {
+            stmt.setInt(1, slotId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    line.add(rs.getInt(1));
+                }
+            }
+        }
+        int taken = NONE;
+        int served = 0;
+        for (int userId : line) {
+            served++;
+            if (accept.accept(userId)) {
+                taken = userId;
+                break;
+            }
+            skipped.add(userId);
+        }
+        if (served > 0) {
+            try (PreparedStatement delete = conn.prepareStatement(
+                     "DELETE FROM slot_waitlist WHERE slot_id = ? AND user_id = ?")) {
+                for (int userId : line.subList(0, served)) {
+                    delete.setInt(1, slotId);
+                    delete.setInt(2, userId);
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+            }
+        }
+        return taken;
+    }
+
+    // After the handoff transaction has committed
+    void settled(int slotId, int userId, List<Integer> skipped) {
+        if (userId != NONE) {
+            CompletableFuture<Boolean> watcher = watchers.remove(key(slotId, userId));
+            if (watcher != null) watcher.complete(true);
+        }
+        for (int skippedUser : skipped) {
+            CompletableFuture<Boolean> watcher = watchers.remove(key(slotId, skippedUser));
+            if (watcher != null) watcher.complete(false);
+        }
+    }
+
+    private static boolean delete(Connection conn, int slotId, int userId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "DELETE FROM slot_waitlist WHERE slot_id = ? AND user_id = ?")) {
+            stmt.setInt(1, slotId);
+            stmt.setInt(2, userId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+}